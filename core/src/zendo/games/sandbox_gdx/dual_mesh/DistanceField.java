@@ -0,0 +1,272 @@
+package zendo.games.sandbox_gdx.dual_mesh;
+
+import zendo.games.sandbox_gdx.utils.IntFloatHeap;
+
+import java.util.Arrays;
+
+/**
+ * Graph distance fields over the regions or triangles of a TriangleMesh,
+ * the building block for mapgen2 style features like distance from the coast
+ * or elevation by distance from water
+ *
+ * Every fill starts from a set of seeds at distance 0 and writes the distance of
+ * each element into a float[], elements that can't be reached are left at
+ * Float.POSITIVE_INFINITY. The ghost region and ghost triangles are never entered.
+ *   - bfs fills count steps across the mesh
+ *   - dijkstra fills sum a cost per side crossed, the straight line distance by default
+ *
+ * Triangle neighbors are read straight from the side arrays. The sides around a region
+ * are scattered through the side arrays though, so region fills use a compact list of
+ * each region's neighbors instead, built on the first region fill and rebuilt whenever
+ * the mesh's version changes. The queues are primitive and kept between fills, so a
+ * fill doesn't allocate once the field has warmed up.
+ * A field isn't safe to use from several threads at once, use one per thread.
+ */
+public class DistanceField {
+
+    /**
+     * The cost of crossing from one element to its neighbor through side s,
+     * for regions s starts at the current region, for triangles s is an inner side of the current triangle
+     * Costs must not be negative, return Float.POSITIVE_INFINITY for sides that can't be crossed
+     */
+    public interface SideCost {
+        float cost(int s);
+    }
+
+    private final TriangleMesh mesh;
+    private int[] queue;
+    private final IntFloatHeap heap;
+
+    // Solid neighbors of region r are r_adjacent_r[r_offsets[r] .. r_offsets[r+1]),
+    // reached through the sides in r_adjacent_s which start at r
+    private int builtVersion;
+    private int[] r_offsets;
+    private int[] r_adjacent_r;
+    private int[] r_adjacent_s;
+
+    public DistanceField(TriangleMesh mesh) {
+        this.mesh = mesh;
+        this.queue = new int[0];
+        this.heap = new IntFloatHeap(0);
+        this.builtVersion = mesh.getVersion() - 1;
+    }
+
+    public TriangleMesh getMesh() { return mesh; }
+
+    /**
+     * Count the steps from the nearest seed to every region
+     * @param seeds_r the seed regions
+     * @param numSeeds the number of seeds to use from seeds_r
+     * @param r_blocked optional, regions flagged true are never entered, may be null
+     * @param out_r optional output array, reused if it can hold every region
+     * @return the distance of each region, indexed by region id
+     */
+    public float[] r_bfs(int[] seeds_r, int numSeeds, boolean[] r_blocked, float[] out_r) {
+        updateAdjacency();
+        final float[] distance = prepare(out_r, mesh.numRegions);
+        final int[] offsets = r_offsets;
+        final int[] adjacent = r_adjacent_r;
+        final int ghost_r = mesh.numRegions - 1;
+
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < numSeeds; ++i) {
+            final int r = seeds_r[i];
+            if (r == ghost_r || distance[r] == 0) continue;
+            distance[r] = 0;
+            queue[tail++] = r;
+        }
+        while (head < tail) {
+            final int r = queue[head++];
+            final float next = distance[r] + 1;
+            for (int i = offsets[r], end = offsets[r + 1]; i < end; ++i) {
+                final int neighbor = adjacent[i];
+                if (distance[neighbor] == Float.POSITIVE_INFINITY && (r_blocked == null || !r_blocked[neighbor])) {
+                    distance[neighbor] = next;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Count the steps from the nearest seed to every triangle
+     * @param seeds_t the seed triangles
+     * @param numSeeds the number of seeds to use from seeds_t
+     * @param t_blocked optional, triangles flagged true are never entered, may be null
+     * @param out_t optional output array, reused if it can hold every triangle
+     * @return the distance of each triangle, indexed by triangle id
+     */
+    public float[] t_bfs(int[] seeds_t, int numSeeds, boolean[] t_blocked, float[] out_t) {
+        final float[] distance = prepare(out_t, mesh.numTriangles);
+        final int[] _s_opposite_s = mesh._s_opposite_s;
+        final int numSolidTriangles = mesh.numSolidTriangles;
+
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < numSeeds; ++i) {
+            final int t = seeds_t[i];
+            if (t >= numSolidTriangles || distance[t] == 0) continue;
+            distance[t] = 0;
+            queue[tail++] = t;
+        }
+        while (head < tail) {
+            final int t = queue[head++];
+            final float next = distance[t] + 1;
+            for (int s = 3 * t; s < 3 * t + 3; ++s) {
+                final int neighbor = TriangleMesh.s_to_t(_s_opposite_s[s]);
+                if (neighbor < numSolidTriangles && distance[neighbor] == Float.POSITIVE_INFINITY
+                 && (t_blocked == null || !t_blocked[neighbor])) {
+                    distance[neighbor] = next;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Find the cheapest path cost from the nearest seed to every region
+     * @param seeds_r the seed regions
+     * @param numSeeds the number of seeds to use from seeds_r
+     * @param cost optional, the cost of each side, null for the distance between the regions
+     * @param out_r optional output array, reused if it can hold every region
+     * @return the distance of each region, indexed by region id
+     */
+    public float[] r_dijkstra(int[] seeds_r, int numSeeds, SideCost cost, float[] out_r) {
+        updateAdjacency();
+        final float[] distance = prepare(out_r, mesh.numRegions);
+        final int[] offsets = r_offsets;
+        final int[] adjacent = r_adjacent_r;
+        final int ghost_r = mesh.numRegions - 1;
+
+        for (int i = 0; i < numSeeds; ++i) {
+            final int r = seeds_r[i];
+            if (r == ghost_r) continue;
+            distance[r] = 0;
+            heap.push(r, 0);
+        }
+        while (!heap.isEmpty()) {
+            final int r = heap.pop();
+            final float d = distance[r];
+            for (int i = offsets[r], end = offsets[r + 1]; i < end; ++i) {
+                final int neighbor = adjacent[i];
+                final float step;
+                if (cost == null) {
+                    final float dx = mesh.r_x(neighbor) - mesh.r_x(r);
+                    final float dy = mesh.r_y(neighbor) - mesh.r_y(r);
+                    step = (float) Math.sqrt(dx * dx + dy * dy);
+                } else {
+                    step = cost.cost(r_adjacent_s[i]);
+                }
+                final float next = d + step;
+                if (next < distance[neighbor]) {
+                    distance[neighbor] = next;
+                    heap.push(neighbor, next);
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Find the cheapest path cost from the nearest seed to every triangle
+     * @param seeds_t the seed triangles
+     * @param numSeeds the number of seeds to use from seeds_t
+     * @param cost optional, the cost of each side, null for the distance between the triangle centers
+     * @param out_t optional output array, reused if it can hold every triangle
+     * @return the distance of each triangle, indexed by triangle id
+     */
+    public float[] t_dijkstra(int[] seeds_t, int numSeeds, SideCost cost, float[] out_t) {
+        final float[] distance = prepare(out_t, mesh.numTriangles);
+        final int[] _s_opposite_s = mesh._s_opposite_s;
+        final int numSolidTriangles = mesh.numSolidTriangles;
+
+        for (int i = 0; i < numSeeds; ++i) {
+            final int t = seeds_t[i];
+            if (t >= numSolidTriangles) continue;
+            distance[t] = 0;
+            heap.push(t, 0);
+        }
+        while (!heap.isEmpty()) {
+            final int t = heap.pop();
+            final float d = distance[t];
+            for (int s = 3 * t; s < 3 * t + 3; ++s) {
+                final int neighbor = TriangleMesh.s_to_t(_s_opposite_s[s]);
+                if (neighbor >= numSolidTriangles) continue;
+                final float step;
+                if (cost == null) {
+                    final float dx = mesh.t_x(neighbor) - mesh.t_x(t);
+                    final float dy = mesh.t_y(neighbor) - mesh.t_y(t);
+                    step = (float) Math.sqrt(dx * dx + dy * dy);
+                } else {
+                    step = cost.cost(s);
+                }
+                final float next = d + step;
+                if (next < distance[neighbor]) {
+                    distance[neighbor] = next;
+                    heap.push(neighbor, next);
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Size the scratch storage for count elements and reset the distances
+     */
+    private float[] prepare(float[] out, int count) {
+        final float[] distance = (out != null && out.length >= count) ? out : new float[count];
+        Arrays.fill(distance, 0, count, Float.POSITIVE_INFINITY);
+        if (queue.length < count) {
+            queue = new int[count];
+        }
+        heap.ensureCapacity(count);
+        return distance;
+    }
+
+    /**
+     * Rebuild the region neighbor lists if the mesh was edited since they were built,
+     * a counting sort of the sides by start region, which reads the side arrays in order
+     */
+    private void updateAdjacency() {
+        if (builtVersion == mesh.getVersion()) return;
+        builtVersion = mesh.getVersion();
+
+        final int[] _s_start_r = mesh._s_start_r;
+        final int numSolidRegions = mesh.numSolidRegions;
+        final int ghost_r = mesh.numRegions - 1;
+
+        if (r_offsets == null || r_offsets.length < numSolidRegions + 2) {
+            r_offsets = new int[numSolidRegions + 2];
+        }
+        final int[] offsets = r_offsets;
+        Arrays.fill(offsets, 0, numSolidRegions + 2, 0);
+        for (int s = 0; s < mesh.numSides; ++s) {
+            final int r = _s_start_r[s];
+            if (r == ghost_r || _s_start_r[TriangleMesh.s_next_s(s)] == ghost_r) continue;
+            offsets[r + 2]++;
+        }
+        for (int r = 2; r <= numSolidRegions + 1; ++r) {
+            offsets[r] += offsets[r - 1];
+        }
+
+        // offsets[r + 1] is used as the insertion cursor for r, and ends up as the start of r + 1
+        final int numAdjacent = offsets[numSolidRegions + 1];
+        if (r_adjacent_r == null || r_adjacent_r.length < numAdjacent) {
+            r_adjacent_r = new int[numAdjacent];
+            r_adjacent_s = new int[numAdjacent];
+        }
+        for (int s = 0; s < mesh.numSides; ++s) {
+            final int r = _s_start_r[s];
+            if (r == ghost_r) continue;
+            final int neighbor = _s_start_r[TriangleMesh.s_next_s(s)];
+            if (neighbor == ghost_r) continue;
+            final int i = offsets[r + 1]++;
+            r_adjacent_r[i] = neighbor;
+            r_adjacent_s[i] = s;
+        }
+    }
+
+}
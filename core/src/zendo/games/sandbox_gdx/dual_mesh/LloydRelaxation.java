@@ -0,0 +1,177 @@
+package zendo.games.sandbox_gdx.dual_mesh;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.FloatArray;
+import zendo.games.sandbox_gdx.utils.Parallel;
+
+/**
+ * Lloyd relaxation of the regions of a TriangleMesh
+ *
+ * Each iteration moves every region to the centroid of its Voronoi cell then
+ * restores the Delaunay triangulation, which evens out the spacing of blue noise
+ * samples and converges toward a centroidal Voronoi tessellation. Later iterations
+ * only nudge the regions so the mesh is repaired with TriangleMesh.r_relocate()
+ * rather than re-triangulated.
+ *
+ * An iteration is two passes which read the current mesh and write into separate
+ * scratch buffers, so both are split across threads with Parallel:
+ *   - the circumcenter of each solid triangle, ie. the Voronoi vertices
+ *   - the area centroid of the polygon around each region
+ * Boundary regions, and any other region whose cell is open because it touches the
+ * ghost region, stay where they are so the mesh keeps its outline. After the first
+ * iteration a region whose centroid lands outside the convex hull stays put as well.
+ *
+ * A relaxation keeps its scratch buffers and MeshGenerator between calls,
+ * so reuse one instance when relaxing many meshes.
+ */
+public class LloydRelaxation {
+
+    private static final int parallel_min_regions = 1 << 14;
+    private static final int parallel_grain_regions = 1 << 13;
+
+    private final MeshGenerator generator;
+    private float[] t_center;
+    private float[] r_next;
+
+    public LloydRelaxation() {
+        this(new MeshGenerator());
+    }
+
+    public LloydRelaxation(MeshGenerator generator) {
+        this.generator = generator;
+        this.t_center = new float[0];
+        this.r_next = new float[0];
+    }
+
+    /**
+     * Create a relaxed mesh covering bounds, see MeshGenerator.createMesh()
+     * @param bounds the area covered by the mesh, relaxed regions are kept inside it
+     * @param boundarySpacing the distance between boundary regions
+     * @param samples interleaved [x, y, ...] interior points, eg. from a BlueNoiseGenerator, not modified
+     * @param iterations the number of relaxation steps
+     * @return the relaxed mesh, region ids match the unrelaxed mesh from the generator
+     */
+    public TriangleMesh createMesh(Rectangle bounds, float boundarySpacing, FloatArray samples, int iterations) {
+        final TriangleMesh mesh = generator.createMesh(bounds, boundarySpacing, samples);
+        return relax(mesh, iterations, bounds);
+    }
+
+    /**
+     * Relax the regions of a mesh, keeping them inside the bounding box of its solid regions
+     * @param mesh the mesh to relax, not modified
+     * @param iterations the number of relaxation steps
+     * @return a new mesh with the relaxed regions, or mesh itself if iterations is 0
+     */
+    public TriangleMesh relax(TriangleMesh mesh, int iterations) {
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int r = 0; r < mesh.numSolidRegions; ++r) {
+            minX = Math.min(minX, mesh.r_x(r));
+            minY = Math.min(minY, mesh.r_y(r));
+            maxX = Math.max(maxX, mesh.r_x(r));
+            maxY = Math.max(maxY, mesh.r_y(r));
+        }
+        return relax(mesh, iterations, new Rectangle(minX, minY, maxX - minX, maxY - minY));
+    }
+
+    /**
+     * Relax the regions of a mesh
+     * @param mesh the mesh to relax, not modified
+     * @param iterations the number of relaxation steps
+     * @param bounds relaxed regions are clamped to this area
+     * @return a new mesh with the relaxed regions, or mesh itself if iterations is 0
+     */
+    public TriangleMesh relax(TriangleMesh mesh, int iterations, Rectangle bounds) {
+        for (int i = 0; i < iterations; ++i) {
+            step(mesh, bounds);
+            // The first step always rebuilds so the caller's mesh is left alone, after that the moves are
+            // small enough that flipping the mesh back to Delaunay beats re-triangulating by a wide margin
+            if (i == 0 || mesh.r_relocate(r_next) == -1) {
+                mesh = generator.createMesh(r_next, mesh.numSolidRegions, mesh.numBoundaryRegions, null, false);
+            }
+        }
+        return mesh;
+    }
+
+    /**
+     * Write the relaxed position of every solid region into r_next
+     */
+    private void step(final TriangleMesh mesh, final Rectangle bounds) {
+        if (t_center.length < 2 * mesh.numSolidTriangles) {
+            t_center = new float[2 * mesh.numSolidTriangles];
+        }
+        if (r_next.length < 2 * mesh.numSolidRegions) {
+            r_next = new float[2 * mesh.numSolidRegions];
+        }
+        final boolean parallel = mesh.numSolidRegions >= parallel_min_regions && Parallel.getNumThreads() > 1;
+
+        final Parallel.RangeTask circumcenters = new Parallel.RangeTask() {
+            @Override
+            public void run(int begin, int end) {
+                for (int t = begin; t < end; ++t) {
+                    VoronoiCells.t_circumcenter(mesh, t, t_center);
+                }
+            }
+        };
+        if (parallel) {
+            Parallel.forRange(0, mesh.numSolidTriangles, parallel_grain_regions, circumcenters);
+        } else {
+            circumcenters.run(0, mesh.numSolidTriangles);
+        }
+
+        final Parallel.RangeTask centroids = new Parallel.RangeTask() {
+            @Override
+            public void run(int begin, int end) {
+                for (int r = begin; r < end; ++r) {
+                    r_centroid(mesh, r, bounds);
+                }
+            }
+        };
+        if (parallel) {
+            Parallel.forRange(0, mesh.numSolidRegions, parallel_grain_regions, centroids);
+        } else {
+            centroids.run(0, mesh.numSolidRegions);
+        }
+    }
+
+    private void r_centroid(TriangleMesh mesh, int r, Rectangle bounds) {
+        final float x = mesh.r_x(r);
+        final float y = mesh.r_y(r);
+        r_next[2 * r]     = x;
+        r_next[2 * r + 1] = y;
+
+        final int s0 = mesh._r_any_s[r];
+        if (r < mesh.numBoundaryRegions || s0 == -1) return;
+
+        // Shoelace formula around the cell, relative to the region to keep the products small
+        int t = TriangleMesh.s_to_t(s0);
+        if (t >= mesh.numSolidTriangles) return;
+        double ax = t_center[2 * t] - x;
+        double ay = t_center[2 * t + 1] - y;
+        double area = 0;
+        double cx = 0;
+        double cy = 0;
+        int s = s0;
+        do {
+            s = TriangleMesh.s_next_s(mesh._s_opposite_s[s]);
+            t = TriangleMesh.s_to_t(s);
+            if (t >= mesh.numSolidTriangles) return;
+            final double bx = t_center[2 * t] - x;
+            final double by = t_center[2 * t + 1] - y;
+            final double cross = ax * by - ay * bx;
+            area += cross;
+            cx += (ax + bx) * cross;
+            cy += (ay + by) * cross;
+            ax = bx;
+            ay = by;
+        } while (s != s0);
+        if (area == 0) return;
+
+        r_next[2 * r]     = MathUtils.clamp((float) (x + cx / (3 * area)), bounds.x, bounds.x + bounds.width);
+        r_next[2 * r + 1] = MathUtils.clamp((float) (y + cy / (3 * area)), bounds.y, bounds.y + bounds.height);
+    }
+
+}
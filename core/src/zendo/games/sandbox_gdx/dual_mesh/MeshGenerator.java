@@ -1,11 +1,254 @@
 package zendo.games.sandbox_gdx.dual_mesh;
 
-import zendo.games.sandbox_gdx.utils.BlueNoiseGenerator;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import zendo.games.sandbox_gdx.utils.HilbertCurve;
 
+import java.util.Arrays;
+
+/**
+ * Port of https://github.com/redblobgames/dual-mesh/blob/master/create.js
+ * ----------------------------------------------------------------------
+ *
+ * Builds a TriangleMesh from a set of points:
+ *   - triangulate the points with a sweep-hull Delaunay triangulation
+ *   - close the mesh by connecting every side on the convex hull to a ghost region
+ *
+ * A generator keeps its triangulator scratch storage between calls,
+ * so reuse one instance when building many meshes.
+ *
+ * Samples usually arrive in no useful order (eg. a BlueNoiseGenerator's active list),
+ * which scatters neighboring regions and triangles all over the mesh arrays. With
+ * spatial ordering on, the interior regions are sorted along a Hilbert curve before
+ * triangulating and the solid triangles are renumbered to follow the regions after,
+ * so circulating and flood filling the mesh mostly stays within the cache.
+ */
 public class MeshGenerator {
 
-    public static void createMesh() {
-//        BlueNoiseGenerator generator = new BlueNoiseGenerator();
+    private final SweepHullTriangulator triangulator;
+    private final boolean spatialOrder;
+    private int[] r_unpaired_s;
+
+    public MeshGenerator() {
+        this(false);
+    }
+
+    /**
+     * @param spatialOrder true to renumber regions and triangles along a Hilbert curve, see createMesh(points, numPoints, numBoundaryRegions, out_r_point)
+     */
+    public MeshGenerator(boolean spatialOrder) {
+        this.triangulator = new SweepHullTriangulator();
+        this.spatialOrder = spatialOrder;
+        this.r_unpaired_s = new int[0];
+    }
+
+    public boolean isSpatialOrder() { return spatialOrder; }
+
+    /**
+     * Create a mesh covering bounds with a ring of boundary regions along its edges
+     * @param bounds the area covered by the mesh, samples should lie inside it
+     * @param boundarySpacing the distance between boundary regions
+     * @param samples interleaved [x, y, ...] interior points, eg. from a BlueNoiseGenerator
+     * @return the mesh, boundary regions come first followed by the samples, in order unless spatial ordering is on
+     */
+    public TriangleMesh createMesh(Rectangle bounds, float boundarySpacing, FloatArray samples) {
+        FloatArray points = new FloatArray(samples.size + 8 * (int) Math.ceil((bounds.width + bounds.height) / boundarySpacing) + 16);
+        int numBoundaryRegions = addBoundaryPoints(bounds, boundarySpacing, points);
+        points.addAll(samples);
+        return createMesh(points.items, points.size / 2, numBoundaryRegions);
+    }
+
+    /**
+     * Create a mesh from the Delaunay triangulation of points
+     * @param points interleaved [x, y, ...] point coordinates, one region is created for each point
+     * @param numPoints the number of points to use from the points array
+     * @param numBoundaryRegions the number of points at the start of the array that are marked as boundary regions
+     * @return the mesh, with region numPoints as the ghost region
+     */
+    public TriangleMesh createMesh(float[] points, int numPoints, int numBoundaryRegions) {
+        return createMesh(points, numPoints, numBoundaryRegions, null);
+    }
+
+    /**
+     * Create a mesh from the Delaunay triangulation of points
+     * With spatial ordering on the boundary regions keep their ids, the rest are renumbered along a Hilbert curve
+     * @param points interleaved [x, y, ...] point coordinates, one region is created for each point, not modified
+     * @param numPoints the number of points to use from the points array
+     * @param numBoundaryRegions the number of points at the start of the array that are marked as boundary regions
+     * @param out_r_point optional, out_r_point[r] is set to the index of the point region r was created from, may be null
+     * @return the mesh, with region numPoints as the ghost region
+     */
+    public TriangleMesh createMesh(float[] points, int numPoints, int numBoundaryRegions, int[] out_r_point) {
+        return createMesh(points, numPoints, numBoundaryRegions, out_r_point, spatialOrder);
+    }
+
+    /**
+     * Create a mesh, choosing whether to apply spatial ordering regardless of this generator's setting,
+     * for rebuilding a mesh whose regions have to keep their ids
+     */
+    TriangleMesh createMesh(float[] points, int numPoints, int numBoundaryRegions, int[] out_r_point, boolean spatialOrder) {
+        final float[] r_vertex = new float[2 * (numPoints + 1)];
+        System.arraycopy(points, 0, r_vertex, 0, 2 * numPoints);
+        if (spatialOrder) {
+            HilbertCurve.sort(r_vertex, numBoundaryRegions, numPoints, out_r_point);
+        }
+        if (out_r_point != null) {
+            for (int r = 0; r < (spatialOrder ? numBoundaryRegions : numPoints); ++r) {
+                out_r_point[r] = r;
+            }
+        }
+
+        // A closed mesh over numPoints + 1 regions has exactly 2 * numPoints - 2 triangles
+        // and the triangulation can only come in under that if it skipped duplicate points
+        final int capacity = Math.max(6 * numPoints - 6, SweepHullTriangulator.maxSides(numPoints));
+        int[] s_start_r = new int[capacity];
+        int[] s_opposite_s = new int[capacity];
+
+        final int numSolidSides = triangulator.triangulate(r_vertex, numPoints, s_start_r, s_opposite_s);
+        if (numSolidSides == 0) {
+            throw new GdxRuntimeException("Unable to create mesh, fewer than 3 points or all points are collinear");
+        }
+        final int numSides = addGhostStructure(numPoints, numSolidSides, s_start_r, s_opposite_s);
+        if (numSides != capacity) {
+            s_start_r = Arrays.copyOf(s_start_r, numSides);
+            s_opposite_s = Arrays.copyOf(s_opposite_s, numSides);
+        }
+
+        // The ghost region sits in the middle of the points so ghost triangles face outward
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < 2 * numPoints; i += 2) {
+            minX = Math.min(minX, r_vertex[i]);
+            minY = Math.min(minY, r_vertex[i + 1]);
+            maxX = Math.max(maxX, r_vertex[i]);
+            maxY = Math.max(maxY, r_vertex[i + 1]);
+        }
+        r_vertex[2 * numPoints]     = (minX + maxX) / 2f;
+        r_vertex[2 * numPoints + 1] = (minY + maxY) / 2f;
+
+        if (spatialOrder) {
+            sortSolidTriangles(numPoints, numSolidSides, s_start_r, s_opposite_s);
+        }
+
+        return new TriangleMesh(numBoundaryRegions, numSolidSides, r_vertex, s_start_r, s_opposite_s);
+    }
+
+    /**
+     * Add points along the edges of bounds, nudged inward slightly
+     * so that no more than two of them are ever collinear
+     * @param bounds the rectangle to surround
+     * @param spacing the approximate distance between boundary points
+     * @param out interleaved [x, y, ...] boundary points are appended here
+     * @return the number of points added
+     */
+    public static int addBoundaryPoints(Rectangle bounds, float spacing, FloatArray out) {
+        final int startSize = out.size;
+        final int numX = (int) Math.ceil(bounds.width  / spacing);
+        final int numY = (int) Math.ceil(bounds.height / spacing);
+        for (int i = 0; i <= numX; ++i) {
+            float t = (i + 0.5f) / (numX + 1);
+            float w = bounds.x + bounds.width * t;
+            float offset = (t - 0.5f) * (t - 0.5f);
+            out.add(w);
+            out.add(bounds.y + offset);
+            out.add(w);
+            out.add(bounds.y + bounds.height - offset);
+        }
+        for (int i = 0; i <= numY; ++i) {
+            float t = (i + 0.5f) / (numY + 1);
+            float h = bounds.y + bounds.height * t;
+            float offset = (t - 0.5f) * (t - 0.5f);
+            out.add(bounds.x + offset);
+            out.add(h);
+            out.add(bounds.x + bounds.width - offset);
+            out.add(h);
+        }
+        return (out.size - startSize) / 2;
+    }
+
+    /**
+     * Pair each unpaired side on the convex hull with a ghost triangle connected to the ghost region,
+     * writing the ghost sides into s_start_r and s_opposite_s after the solid sides
+     * @return the total number of sides
+     */
+    private int addGhostStructure(int numSolidRegions, int numSolidSides, int[] s_start_r, int[] s_opposite_s) {
+        final int ghost_r = numSolidRegions;
+
+        if (r_unpaired_s.length < numSolidRegions) {
+            r_unpaired_s = new int[numSolidRegions];
+        }
+
+        int numUnpairedSides = 0;
+        int firstUnpairedSide = -1;
+        for (int s = 0; s < numSolidSides; ++s) {
+            if (s_opposite_s[s] == -1) {
+                numUnpairedSides++;
+                r_unpaired_s[s_start_r[s]] = s;
+                firstUnpairedSide = s;
+            }
+        }
+
+        for (int i = 0, s = firstUnpairedSide;
+             i < numUnpairedSides;
+             ++i, s = r_unpaired_s[s_start_r[TriangleMesh.s_next_s(s)]]) {
+            // Construct a ghost side for s
+            int ghost_s = numSolidSides + 3 * i;
+            s_opposite_s[s] = ghost_s;
+            s_opposite_s[ghost_s] = s;
+            s_start_r[ghost_s] = s_start_r[TriangleMesh.s_next_s(s)];
+
+            // Construct the rest of the ghost triangle
+            s_start_r[ghost_s + 1] = s_start_r[s];
+            s_start_r[ghost_s + 2] = ghost_r;
+            int k = numSolidSides + (3 * i + 4) % (3 * numUnpairedSides);
+            s_opposite_s[ghost_s + 2] = k;
+            s_opposite_s[k] = ghost_s + 2;
+        }
+
+        return numSolidSides + 3 * numUnpairedSides;
+    }
+
+    /**
+     * Renumber the solid triangles in order of their lowest region id, with the regions already along
+     * a Hilbert curve this puts them along the curve too, using a counting sort rather than a comparison sort.
+     * Ghost triangles keep their ids and only their links to solid sides are updated.
+     */
+    private static void sortSolidTriangles(int numRegions, int numSolidSides, int[] s_start_r, int[] s_opposite_s) {
+        final int numSolidTriangles = numSolidSides / 3;
+
+        final int[] r_first_t = new int[numRegions + 1];
+        for (int s = 0; s < numSolidSides; s += 3) {
+            r_first_t[minRegion(s_start_r, s) + 1]++;
+        }
+        for (int r = 1; r <= numRegions; ++r) {
+            r_first_t[r] += r_first_t[r - 1];
+        }
+        final int[] t_sorted = new int[numSolidTriangles];
+        for (int t = 0; t < numSolidTriangles; ++t) {
+            t_sorted[t] = r_first_t[minRegion(s_start_r, 3 * t)]++;
+        }
+
+        final int[] start = Arrays.copyOf(s_start_r, numSolidSides);
+        final int[] opposite = Arrays.copyOf(s_opposite_s, numSolidSides);
+        for (int s = 0; s < numSolidSides; ++s) {
+            final int dst = 3 * t_sorted[s / 3] + s % 3;
+            final int o = opposite[s];
+            s_start_r[dst] = start[s];
+            s_opposite_s[dst] = (o < numSolidSides) ? 3 * t_sorted[o / 3] + o % 3 : o;
+        }
+        for (int s = numSolidSides; s < s_opposite_s.length; ++s) {
+            final int o = s_opposite_s[s];
+            if (o < numSolidSides) {
+                s_opposite_s[s] = 3 * t_sorted[o / 3] + o % 3;
+            }
+        }
+    }
+
+    private static int minRegion(int[] s_start_r, int s) {
+        return Math.min(s_start_r[s], Math.min(s_start_r[s + 1], s_start_r[s + 2]));
     }
 
 }
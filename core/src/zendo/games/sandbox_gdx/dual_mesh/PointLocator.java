@@ -0,0 +1,206 @@
+package zendo.games.sandbox_gdx.dual_mesh;
+
+import zendo.games.sandbox_gdx.utils.Parallel;
+
+import java.util.Arrays;
+
+/**
+ * Answers which triangle or region of a TriangleMesh a point falls in
+ *
+ * Uses jump-and-walk: a coarse grid holding one solid triangle per cell gives a
+ * starting triangle near the query point, then the walk steps across whichever
+ * side the point lies beyond until it reaches the triangle containing it.
+ * The grid has a couple of triangles per cell so walks are a handful of
+ * steps on average, and queries don't allocate.
+ *
+ * Queries only read the mesh and the grid so they are safe to run concurrently.
+ * The grid stays usable after local edits to the mesh, though walks get longer
+ * the more the mesh changes, so call rebuild() after large edits.
+ */
+public class PointLocator {
+
+    private static final int triangles_per_cell = 2;
+    private static final int parallel_min_queries = 4096;
+    private static final int parallel_grain_queries = 1024;
+
+    private final TriangleMesh mesh;
+
+    private float originX;
+    private float originY;
+    private float cellSize;
+    private int gridWidth;
+    private int gridHeight;
+    private int[] cells;
+
+    public PointLocator(TriangleMesh mesh) {
+        this.mesh = mesh;
+        rebuild();
+    }
+
+    public TriangleMesh getMesh() { return mesh; }
+
+    /**
+     * Rebuild the seed grid from the current state of the mesh
+     */
+    public void rebuild() {
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int r = 0; r < mesh.numSolidRegions; ++r) {
+            minX = Math.min(minX, mesh.r_x(r));
+            minY = Math.min(minY, mesh.r_y(r));
+            maxX = Math.max(maxX, mesh.r_x(r));
+            maxY = Math.max(maxY, mesh.r_y(r));
+        }
+        final float width  = Math.max(maxX - minX, 1e-6f);
+        final float height = Math.max(maxY - minY, 1e-6f);
+        final int numCells = Math.max(1, mesh.numSolidTriangles / triangles_per_cell);
+
+        originX = minX;
+        originY = minY;
+        cellSize = (float) Math.sqrt(width * height / numCells);
+        gridWidth  = (int) (width  / cellSize) + 1;
+        gridHeight = (int) (height / cellSize) + 1;
+        if (cells == null || cells.length != gridWidth * gridHeight) {
+            cells = new int[gridWidth * gridHeight];
+        }
+        Arrays.fill(cells, -1);
+
+        for (int t = 0; t < mesh.numSolidTriangles; ++t) {
+            cells[cell(mesh.t_x(t), mesh.t_y(t))] = t;
+        }
+
+        // Cells without a triangle center borrow one from the nearest filled cell,
+        // spreading outward breadth first so every seed stays close to its cell
+        final int[] queue = new int[cells.length];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < cells.length; ++i) {
+            if (cells[i] != -1) queue[tail++] = i;
+        }
+        while (head < tail) {
+            final int i = queue[head++];
+            final int cx = i % gridWidth;
+            final int cy = i / gridWidth;
+            if (cx > 0              && cells[i - 1] == -1)         { cells[i - 1] = cells[i];         queue[tail++] = i - 1; }
+            if (cx < gridWidth - 1  && cells[i + 1] == -1)         { cells[i + 1] = cells[i];         queue[tail++] = i + 1; }
+            if (cy > 0              && cells[i - gridWidth] == -1) { cells[i - gridWidth] = cells[i]; queue[tail++] = i - gridWidth; }
+            if (cy < gridHeight - 1 && cells[i + gridWidth] == -1) { cells[i + gridWidth] = cells[i]; queue[tail++] = i + gridWidth; }
+        }
+    }
+
+    /**
+     * Find the solid triangle containing (x, y)
+     * @param x x value of the query point
+     * @param y y value of the query point
+     * @return the triangle id, or -1 if the point is outside the mesh's convex hull
+     */
+    public int t_locate(float x, float y) {
+        final int t = seed(x, y);
+        if (t == -1) return -1;
+        return mesh.t_walk(t, x, y);
+    }
+
+    /**
+     * Find the solid region whose point is closest to (x, y), ie. the region whose
+     * Voronoi cell contains (x, y), points outside the mesh snap to the closest boundary region
+     * @param x x value of the query point
+     * @param y y value of the query point
+     * @return the region id, or -1 if the mesh has no solid triangles
+     */
+    public int r_locate(float x, float y) {
+        final int t = seed(x, y);
+        if (t == -1) return -1;
+
+        // Greedy walk over the Delaunay graph, moving to a closer neighbor until there isn't one,
+        // in a Delaunay triangulation that can only stop at the nearest region
+        int r = mesh._s_start_r[3 * t];
+        float best = dst2(r, x, y);
+        while (true) {
+            final int s0 = mesh._r_any_s[r];
+            int s = s0;
+            int closer = -1;
+            do {
+                final int neighbor = mesh.s_end_r(s);
+                if (!mesh.r_ghost(neighbor)) {
+                    final float d = dst2(neighbor, x, y);
+                    if (d < best) {
+                        best = d;
+                        closer = neighbor;
+                    }
+                }
+                s = TriangleMesh.s_next_s(mesh._s_opposite_s[s]);
+            } while (s != s0);
+
+            if (closer == -1) return r;
+            r = closer;
+        }
+    }
+
+    /**
+     * Find the solid triangle containing each point, see t_locate(x, y)
+     * Large batches are split across threads with Parallel
+     * @param points interleaved [x, y, ...] query points
+     * @param numPoints the number of points to look up
+     * @param out_t the triangle id for each point is written here, -1 if outside the mesh
+     */
+    public void t_locate(final float[] points, int numPoints, final int[] out_t) {
+        final Parallel.RangeTask task = new Parallel.RangeTask() {
+            @Override
+            public void run(int begin, int end) {
+                for (int i = begin; i < end; ++i) {
+                    out_t[i] = t_locate(points[2 * i], points[2 * i + 1]);
+                }
+            }
+        };
+        if (numPoints >= parallel_min_queries) {
+            Parallel.forRange(0, numPoints, parallel_grain_queries, task);
+        } else {
+            task.run(0, numPoints);
+        }
+    }
+
+    /**
+     * Find the closest solid region to each point, see r_locate(x, y)
+     * Large batches are split across threads with Parallel
+     * @param points interleaved [x, y, ...] query points
+     * @param numPoints the number of points to look up
+     * @param out_r the region id for each point is written here
+     */
+    public void r_locate(final float[] points, int numPoints, final int[] out_r) {
+        final Parallel.RangeTask task = new Parallel.RangeTask() {
+            @Override
+            public void run(int begin, int end) {
+                for (int i = begin; i < end; ++i) {
+                    out_r[i] = r_locate(points[2 * i], points[2 * i + 1]);
+                }
+            }
+        };
+        if (numPoints >= parallel_min_queries) {
+            Parallel.forRange(0, numPoints, parallel_grain_queries, task);
+        } else {
+            task.run(0, numPoints);
+        }
+    }
+
+    private int cell(float x, float y) {
+        final int cx = Math.min(Math.max((int) ((x - originX) / cellSize), 0), gridWidth  - 1);
+        final int cy = Math.min(Math.max((int) ((y - originY) / cellSize), 0), gridHeight - 1);
+        return cy * gridWidth + cx;
+    }
+
+    private int seed(float x, float y) {
+        // Edits to the mesh can leave seeds pointing past the last solid triangle, any solid triangle is
+        // still a valid place to start walking from, it just takes longer until the next rebuild()
+        final int t = cells[cell(x, y)];
+        return (t < mesh.numSolidTriangles) ? t : mesh.numSolidTriangles - 1;
+    }
+
+    private float dst2(int r, float x, float y) {
+        final float dx = mesh.r_x(r) - x;
+        final float dy = mesh.r_y(r) - y;
+        return dx * dx + dy * dy;
+    }
+
+}
@@ -0,0 +1,496 @@
+package zendo.games.sandbox_gdx.dual_mesh;
+
+/**
+ * Port of https://github.com/mapbox/delaunator
+ * -------------------------------------------
+ *
+ * Sweep-hull Delaunay triangulation in O(n log n):
+ *   - pick a seed triangle near the center of the points
+ *   - sort the remaining points by distance from its circumcenter
+ *   - add points in that order, connecting each one to the visible part
+ *     of the convex hull and restoring the Delaunay condition with edge flips
+ *
+ * Output is written into caller supplied int arrays using the half-edge
+ * layout that TriangleMesh expects:
+ *   - triangles[s] is the point that side s starts at (sides 3t, 3t+1, 3t+2 form triangle t)
+ *   - halfedges[s] is the opposite side, or -1 for a side on the convex hull
+ *
+ * Scratch storage is kept between calls so a triangulator can be reused without
+ * reallocating as long as the number of points doesn't grow.
+ */
+public class SweepHullTriangulator {
+
+    private static final double epsilon = Math.pow(2, -52);
+
+    private final int[] edgeStack = new int[512];
+
+    private float[] coords;
+    private int[] triangles;
+    private int[] halfedges;
+    private int trianglesLen;
+
+    private int[] hullPrev;
+    private int[] hullNext;
+    private int[] hullTri;
+    private int[] hullHash;
+    private int hashSize;
+    private int hullStart;
+    private int hullSize;
+
+    private int[] ids;
+    private double[] dists;
+    private double cx;
+    private double cy;
+
+    /**
+     * @param numPoints the number of points to triangulate
+     * @return the number of side indices needed for the triangles / halfedges output arrays
+     */
+    public static int maxSides(int numPoints) {
+        return Math.max(2 * numPoints - 5, 0) * 3;
+    }
+
+    /**
+     * Triangulate points
+     * @param coords interleaved point coordinates [x0, y0, x1, y1, ...]
+     * @param numPoints the number of points in coords
+     * @param triangles output, the point each side starts at, must hold at least maxSides(numPoints) values
+     * @param halfedges output, the opposite of each side or -1, must hold at least maxSides(numPoints) values
+     * @return the number of sides written, 0 if all points are collinear
+     */
+    public int triangulate(float[] coords, int numPoints, int[] triangles, int[] halfedges) {
+        this.coords = coords;
+        this.triangles = triangles;
+        this.halfedges = halfedges;
+        this.trianglesLen = 0;
+        ensureScratch(numPoints);
+
+        final int n = numPoints;
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; ++i) {
+            final float x = coords[2 * i];
+            final float y = coords[2 * i + 1];
+            if (x < minX) minX = x;
+            if (y < minY) minY = y;
+            if (x > maxX) maxX = x;
+            if (y > maxY) maxY = y;
+            ids[i] = i;
+        }
+        final double centerX = (minX + maxX) / 2;
+        final double centerY = (minY + maxY) / 2;
+
+        // pick a seed point close to the center
+        double minDist = Double.POSITIVE_INFINITY;
+        int i0 = -1, i1 = -1, i2 = -1;
+        for (int i = 0; i < n; ++i) {
+            final double d = dist(centerX, centerY, coords[2 * i], coords[2 * i + 1]);
+            if (d < minDist) {
+                i0 = i;
+                minDist = d;
+            }
+        }
+        if (i0 == -1) return 0;
+        final double i0x = coords[2 * i0];
+        final double i0y = coords[2 * i0 + 1];
+
+        // find the point closest to the seed
+        minDist = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; ++i) {
+            if (i == i0) continue;
+            final double d = dist(i0x, i0y, coords[2 * i], coords[2 * i + 1]);
+            if (d < minDist && d > 0) {
+                i1 = i;
+                minDist = d;
+            }
+        }
+        if (i1 == -1) return 0;
+        double i1x = coords[2 * i1];
+        double i1y = coords[2 * i1 + 1];
+
+        // find the third point which forms the smallest circumcircle with the first two
+        double minRadius = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; ++i) {
+            if (i == i0 || i == i1) continue;
+            final double r = circumradius(i0x, i0y, i1x, i1y, coords[2 * i], coords[2 * i + 1]);
+            if (r < minRadius) {
+                i2 = i;
+                minRadius = r;
+            }
+        }
+        if (i2 == -1 || minRadius == Double.POSITIVE_INFINITY) {
+            // all points are collinear, there are no triangles
+            return 0;
+        }
+        double i2x = coords[2 * i2];
+        double i2y = coords[2 * i2 + 1];
+
+        // swap the order of the seed points for counter-clockwise orientation
+        if (orient(i0x, i0y, i1x, i1y, i2x, i2y)) {
+            final int i = i1;
+            final double x = i1x;
+            final double y = i1y;
+            i1 = i2;
+            i1x = i2x;
+            i1y = i2y;
+            i2 = i;
+            i2x = x;
+            i2y = y;
+        }
+
+        circumcenter(i0x, i0y, i1x, i1y, i2x, i2y);
+        for (int i = 0; i < n; ++i) {
+            dists[i] = dist(coords[2 * i], coords[2 * i + 1], cx, cy);
+        }
+
+        // sort the points by distance from the seed triangle circumcenter
+        quicksort(ids, dists, 0, n - 1);
+
+        // set up the seed triangle as the starting hull
+        hullStart = i0;
+        hullSize = 3;
+
+        hullNext[i0] = hullPrev[i2] = i1;
+        hullNext[i1] = hullPrev[i0] = i2;
+        hullNext[i2] = hullPrev[i1] = i0;
+
+        hullTri[i0] = 0;
+        hullTri[i1] = 1;
+        hullTri[i2] = 2;
+
+        for (int i = 0; i < hashSize; ++i) {
+            hullHash[i] = -1;
+        }
+        hullHash[hashKey(i0x, i0y)] = i0;
+        hullHash[hashKey(i1x, i1y)] = i1;
+        hullHash[hashKey(i2x, i2y)] = i2;
+
+        addTriangle(i0, i1, i2, -1, -1, -1);
+
+        double xp = 0;
+        double yp = 0;
+        for (int k = 0; k < n; ++k) {
+            final int i = ids[k];
+            final double x = coords[2 * i];
+            final double y = coords[2 * i + 1];
+
+            // skip near-duplicate points
+            if (k > 0 && Math.abs(x - xp) <= epsilon && Math.abs(y - yp) <= epsilon) continue;
+            xp = x;
+            yp = y;
+
+            // skip seed triangle points
+            if (i == i0 || i == i1 || i == i2) continue;
+
+            // find a visible edge on the convex hull using edge hash
+            int start = 0;
+            for (int j = 0, key = hashKey(x, y); j < hashSize; ++j) {
+                start = hullHash[(key + j) % hashSize];
+                if (start != -1 && start != hullNext[start]) break;
+            }
+
+            start = hullPrev[start];
+            int e = start;
+            int q = hullNext[e];
+            while (!orient(x, y, coords[2 * e], coords[2 * e + 1], coords[2 * q], coords[2 * q + 1])) {
+                e = q;
+                if (e == start) {
+                    e = -1;
+                    break;
+                }
+                q = hullNext[e];
+            }
+            // likely a near-duplicate point, skip it
+            if (e == -1) continue;
+
+            // add the first triangle from the point
+            int t = addTriangle(e, i, hullNext[e], -1, -1, hullTri[e]);
+
+            // recursively flip triangles from the point until they satisfy the Delaunay condition
+            hullTri[i] = legalize(t + 2);
+            // keep track of boundary triangles on the hull
+            hullTri[e] = t;
+            hullSize++;
+
+            // walk forward through the hull, adding more triangles and flipping recursively
+            int next = hullNext[e];
+            q = hullNext[next];
+            while (orient(x, y, coords[2 * next], coords[2 * next + 1], coords[2 * q], coords[2 * q + 1])) {
+                t = addTriangle(next, i, q, hullTri[i], -1, hullTri[next]);
+                hullTri[i] = legalize(t + 2);
+                // mark as removed
+                hullNext[next] = next;
+                hullSize--;
+                next = q;
+                q = hullNext[next];
+            }
+
+            // walk backward from the other side, adding more triangles and flipping
+            if (e == start) {
+                q = hullPrev[e];
+                while (orient(x, y, coords[2 * q], coords[2 * q + 1], coords[2 * e], coords[2 * e + 1])) {
+                    t = addTriangle(q, i, e, -1, hullTri[e], hullTri[q]);
+                    legalize(t + 2);
+                    hullTri[q] = t;
+                    // mark as removed
+                    hullNext[e] = e;
+                    hullSize--;
+                    e = q;
+                    q = hullPrev[e];
+                }
+            }
+
+            // update the hull indices
+            hullStart = hullPrev[i] = e;
+            hullNext[e] = hullPrev[next] = i;
+            hullNext[i] = next;
+
+            // save the two new edges in the hash table
+            hullHash[hashKey(x, y)] = i;
+            hullHash[hashKey(coords[2 * e], coords[2 * e + 1])] = e;
+        }
+
+        this.coords = null;
+        this.triangles = null;
+        this.halfedges = null;
+        return trianglesLen;
+    }
+
+    /**
+     * @return the number of points on the convex hull from the last triangulation
+     */
+    public int getHullSize() { return hullSize; }
+
+    private void ensureScratch(int n) {
+        if (ids == null || ids.length < n) {
+            hullPrev = new int[n];
+            hullNext = new int[n];
+            hullTri = new int[n];
+            ids = new int[n];
+            dists = new double[n];
+        }
+        hashSize = Math.max(1, (int) Math.ceil(Math.sqrt(n)));
+        if (hullHash == null || hullHash.length < hashSize) {
+            hullHash = new int[hashSize];
+        }
+    }
+
+    private int hashKey(double x, double y) {
+        return (int) Math.floor(pseudoAngle(x - cx, y - cy) * hashSize) % hashSize;
+    }
+
+    private int legalize(int a) {
+        int i = 0;
+        int ar;
+
+        // recursion eliminated with a fixed-size stack
+        while (true) {
+            final int b = halfedges[a];
+
+            // if the pair of triangles doesn't satisfy the Delaunay condition
+            // (p1 is inside the circumcircle of [p0, pl, pr]), flip them,
+            // then do the same check/flip recursively for the new pair of triangles
+            final int a0 = a - a % 3;
+            ar = a0 + (a + 2) % 3;
+
+            // convex hull edge
+            if (b == -1) {
+                if (i == 0) break;
+                a = edgeStack[--i];
+                continue;
+            }
+
+            final int b0 = b - b % 3;
+            final int al = a0 + (a + 1) % 3;
+            final int bl = b0 + (b + 2) % 3;
+
+            final int p0 = triangles[ar];
+            final int pr = triangles[a];
+            final int pl = triangles[al];
+            final int p1 = triangles[bl];
+
+            final boolean illegal = inCircle(
+                    coords[2 * p0], coords[2 * p0 + 1],
+                    coords[2 * pr], coords[2 * pr + 1],
+                    coords[2 * pl], coords[2 * pl + 1],
+                    coords[2 * p1], coords[2 * p1 + 1]);
+
+            if (illegal) {
+                triangles[a] = p1;
+                triangles[b] = p0;
+
+                final int hbl = halfedges[bl];
+
+                // edge swapped on the other side of the hull (rare), fix the halfedge reference
+                if (hbl == -1) {
+                    int e = hullStart;
+                    do {
+                        if (hullTri[e] == bl) {
+                            hullTri[e] = a;
+                            break;
+                        }
+                        e = hullPrev[e];
+                    } while (e != hullStart);
+                }
+                link(a, hbl);
+                link(b, halfedges[ar]);
+                link(ar, bl);
+
+                final int br = b0 + (b + 1) % 3;
+
+                // don't worry about hitting the cap, it can only happen on extremely degenerate input
+                if (i < edgeStack.length) {
+                    edgeStack[i++] = br;
+                }
+            } else {
+                if (i == 0) break;
+                a = edgeStack[--i];
+            }
+        }
+
+        return ar;
+    }
+
+    private void link(int a, int b) {
+        halfedges[a] = b;
+        if (b != -1) halfedges[b] = a;
+    }
+
+    // add a new triangle given vertex indices and adjacent half-edge ids
+    private int addTriangle(int i0, int i1, int i2, int a, int b, int c) {
+        final int t = trianglesLen;
+        triangles[t]     = i0;
+        triangles[t + 1] = i1;
+        triangles[t + 2] = i2;
+        link(t,     a);
+        link(t + 1, b);
+        link(t + 2, c);
+        trianglesLen += 3;
+        return t;
+    }
+
+    // monotonically increases with real angle, but doesn't need expensive trigonometry
+    private static double pseudoAngle(double dx, double dy) {
+        final double p = dx / (Math.abs(dx) + Math.abs(dy));
+        // [0..1]
+        return (dy > 0 ? 3 - p : 1 + p) / 4;
+    }
+
+    private static double dist(double ax, double ay, double bx, double by) {
+        final double dx = ax - bx;
+        final double dy = ay - by;
+        return dx * dx + dy * dy;
+    }
+
+    // return 2d orientation sign if we're confident in it through J. Shewchuk's error bound check
+    private static double orientIfSure(double px, double py, double rx, double ry, double qx, double qy) {
+        final double l = (ry - py) * (qx - px);
+        final double r = (rx - px) * (qy - py);
+        return Math.abs(l - r) >= 3.3306690738754716e-16 * Math.abs(l + r) ? l - r : 0;
+    }
+
+    // a more robust orientation test that's stable in a given triangle (to fix robustness issues)
+    private static boolean orient(double rx, double ry, double qx, double qy, double px, double py) {
+        double sign = orientIfSure(px, py, rx, ry, qx, qy);
+        if (sign == 0) sign = orientIfSure(rx, ry, qx, qy, px, py);
+        if (sign == 0) sign = orientIfSure(qx, qy, px, py, rx, ry);
+        return sign < 0;
+    }
+
+    private static boolean inCircle(double ax, double ay, double bx, double by, double cx, double cy, double px, double py) {
+        final double dx = ax - px;
+        final double dy = ay - py;
+        final double ex = bx - px;
+        final double ey = by - py;
+        final double fx = cx - px;
+        final double fy = cy - py;
+
+        final double ap = dx * dx + dy * dy;
+        final double bp = ex * ex + ey * ey;
+        final double cp = fx * fx + fy * fy;
+
+        return dx * (ey * cp - bp * fy) -
+               dy * (ex * cp - bp * fx) +
+               ap * (ex * fy - ey * fx) < 0;
+    }
+
+    private static double circumradius(double ax, double ay, double bx, double by, double cx, double cy) {
+        final double dx = bx - ax;
+        final double dy = by - ay;
+        final double ex = cx - ax;
+        final double ey = cy - ay;
+
+        final double bl = dx * dx + dy * dy;
+        final double cl = ex * ex + ey * ey;
+        final double d = 0.5 / (dx * ey - dy * ex);
+
+        final double x = (ey * bl - dy * cl) * d;
+        final double y = (dx * cl - ex * bl) * d;
+
+        final double r = x * x + y * y;
+        return (Double.isNaN(r) || Double.isInfinite(r)) ? Double.POSITIVE_INFINITY : r;
+    }
+
+    // sets cx, cy to the circumcenter of the triangle
+    private void circumcenter(double ax, double ay, double bx, double by, double cx, double cy) {
+        final double dx = bx - ax;
+        final double dy = by - ay;
+        final double ex = cx - ax;
+        final double ey = cy - ay;
+
+        final double bl = dx * dx + dy * dy;
+        final double cl = ex * ex + ey * ey;
+        final double d = 0.5 / (dx * ey - dy * ex);
+
+        this.cx = ax + (ey * bl - dy * cl) * d;
+        this.cy = ay + (dx * cl - ex * bl) * d;
+    }
+
+    private static void quicksort(int[] ids, double[] dists, int left, int right) {
+        if (right - left <= 20) {
+            for (int i = left + 1; i <= right; ++i) {
+                final int temp = ids[i];
+                final double tempDist = dists[temp];
+                int j = i - 1;
+                while (j >= left && dists[ids[j]] > tempDist) ids[j + 1] = ids[j--];
+                ids[j + 1] = temp;
+            }
+        } else {
+            final int median = (left + right) >> 1;
+            int i = left + 1;
+            int j = right;
+            swap(ids, median, i);
+            if (dists[ids[left]] > dists[ids[right]]) swap(ids, left, right);
+            if (dists[ids[i]] > dists[ids[right]]) swap(ids, i, right);
+            if (dists[ids[left]] > dists[ids[i]]) swap(ids, left, i);
+
+            final int temp = ids[i];
+            final double tempDist = dists[temp];
+            while (true) {
+                do i++; while (dists[ids[i]] < tempDist);
+                do j--; while (dists[ids[j]] > tempDist);
+                if (j < i) break;
+                swap(ids, i, j);
+            }
+            ids[left + 1] = ids[j];
+            ids[j] = temp;
+
+            if (right - i + 1 >= j - left) {
+                quicksort(ids, dists, i, right);
+                quicksort(ids, dists, left, j - 1);
+            } else {
+                quicksort(ids, dists, left, j - 1);
+                quicksort(ids, dists, i, right);
+            }
+        }
+    }
+
+    private static void swap(int[] arr, int i, int j) {
+        final int tmp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = tmp;
+    }
+
+}
@@ -1,8 +1,23 @@
 package zendo.games.sandbox_gdx.dual_mesh;
 
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.StreamUtils;
+import zendo.games.sandbox_gdx.utils.Parallel;
+import zendo.games.sandbox_gdx.utils.QuantizedPoints;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * Port of https://github.com/redblobgames/dual-mesh
@@ -44,23 +59,30 @@ public class TriangleMesh {
     static int s_prev_s(int s) { return (s % 3 == 0) ? s+2 : s-1; }
     static int s_next_s(int s) { return (s % 3 == 2) ? s-2 : s+1; }
 
-    int numBoundaryRegions;
-    int numSolidSides;
-    int[] r_vertex;       // TODO: type?
-    int[] _s_start_r;     // TODO: type?
-    int[] _s_opposite_s;  // TODO: type?
-
-    int numSides;
-    int numRegions;
-    int numSolidRegions;
-    int numTriangles;
-    int numSolidTriangles;
+    public int numBoundaryRegions;
+    public int numSolidSides;
+    float[] r_vertex;     // interleaved [x0, y0, x1, y1, ...], see r_x() / r_y()
+    int[] _s_start_r;
+    int[] _s_opposite_s;
+
+    public int numSides;
+    public int numRegions;
+    public int numSolidRegions;
+    public int numTriangles;
+    public int numSolidTriangles;
     int[] _r_any_s;
-    float[][] t_vertex; // TODO: type?
+    float[] t_vertex;     // interleaved [x0, y0, x1, y1, ...], see t_x() / t_y()
+    QuantizedPoints r_quantized;  // replaces r_vertex while the mesh is quantized, see quantize()
+    QuantizedPoints t_quantized;  // replaces t_vertex while the mesh is quantized
+
+    // NOTE: after local edits (r_insert, r_remove, r_move, r_relocate) the arrays can have spare capacity
+    //       at the end, always loop up to the num* counts rather than the array lengths
+    // NOTE: r_vertex and t_vertex are null while the mesh is quantized, code that has to work
+    //       on quantized meshes reads coordinates through r_x() / r_y() / t_x() / t_y()
 
     public TriangleMesh(int numBoundaryRegions,
                         int numSolidSides,
-                        int[] r_vertex,
+                        float[] r_vertex,
                         int[] _s_start_r,
                         int[] _s_opposite_s) {
         // Object.assign(this, {numBoundaryRegions, numSolidSides, r_vertex, _s_start_r, _s_opposite_s});
@@ -72,105 +94,1168 @@ public class TriangleMesh {
 
 
         this.numSides = this._s_start_r.length;
-        this.numRegions = this.r_vertex.length;
+        this.numRegions = this.r_vertex.length / 2;
         this.numSolidRegions = this.numRegions - 1;
         this.numTriangles = this.numSides / 3;
         this.numSolidTriangles = this.numSolidSides / 3;
 
+        if (numSides >= parallel_min_sides && Parallel.getNumThreads() > 1) {
+            buildIndicesParallel();
+        } else {
+            buildIndices();
+        }
+    }
+
+    /**
+     * Wrap arrays from a saved mesh, the indices were saved alongside so nothing is rebuilt
+     * The coordinates are filled in by the caller, either as floats or quantized
+     */
+    private TriangleMesh(int numBoundaryRegions,
+                         int numSolidSides,
+                         int numRegions,
+                         int[] _s_start_r,
+                         int[] _s_opposite_s,
+                         int[] _r_any_s) {
+        this.numBoundaryRegions = numBoundaryRegions;
+        this.numSolidSides = numSolidSides;
+        this._s_start_r = _s_start_r;
+        this._s_opposite_s = _s_opposite_s;
+        this._r_any_s = _r_any_s;
+
+        this.numSides = this._s_start_r.length;
+        this.numRegions = numRegions;
+        this.numSolidRegions = this.numRegions - 1;
+        this.numTriangles = this.numSides / 3;
+        this.numSolidTriangles = this.numSolidSides / 3;
+    }
+
+    // Meshes with fewer sides than this are indexed on the calling thread, below this size
+    // handing the work to the thread pool costs more than it saves
+    static final int parallel_min_sides = 1 << 16;
+    static final int parallel_grain_sides = 1 << 15;
+
+    private void buildIndices() {
         // Construct an index for finding sides connected to a region
+        // REPLACES: _r_any_s[_s_start_r[s]] = _r_any_s[_s_start_r[s]] || s
+        // keeps the first side found for each region, regions with no sides stay -1
         this._r_any_s = new int[numRegions];
-        for (int s = 0; s < _s_start_r.length; ++s) {
-            // REPLACES: _r_any_s[_s_start_r[s]] || 0
-            int value = 0;
-            if (s < _s_start_r.length) {
-                int index = _s_start_r[s];
-                if (index >= 0 && index < _r_any_s.length) {
-                    value = _r_any_s[index];
-                }
+        Arrays.fill(_r_any_s, -1);
+        for (int s = 0; s < numSides; ++s) {
+            int r = _s_start_r[s];
+            if (_r_any_s[r] == -1) {
+                _r_any_s[r] = s;
             }
-
-            _r_any_s[_s_start_r[s]] = value;
         }
 
         // Construct triangle coordinates
-        this.t_vertex = new float[this.numTriangles][];
-        for (int s = 0; s < _s_start_r.length; s += 3) {
-            int[] a = { r_vertex[_s_start_r[s  ]], r_vertex[_s_start_r[s  ] + 1] };
-            int[] b = { r_vertex[_s_start_r[s+1]], r_vertex[_s_start_r[s+1] + 1] };
-            int[] c = { r_vertex[_s_start_r[s+2]], r_vertex[_s_start_r[s+2] + 1] };
+        this.t_vertex = new float[2 * this.numTriangles];
+        build_t_vertex(0, numTriangles);
+    }
+
+    /**
+     * Same result as buildIndices(), bit for bit, with the side and triangle loops split across Parallel
+     * The first side of each region is found with an atomic min so the winner doesn't depend on scheduling
+     */
+    private void buildIndicesParallel() {
+        final AtomicIntegerArray r_min_s = new AtomicIntegerArray(numRegions);
+        Parallel.forRange(0, numRegions, parallel_grain_sides, new Parallel.RangeTask() {
+            @Override
+            public void run(int begin, int end) {
+                for (int r = begin; r < end; ++r) {
+                    r_min_s.set(r, Integer.MAX_VALUE);
+                }
+            }
+        });
+        Parallel.forRange(0, numSides, parallel_grain_sides, new Parallel.RangeTask() {
+            @Override
+            public void run(int begin, int end) {
+                for (int s = begin; s < end; ++s) {
+                    int r = _s_start_r[s];
+                    int current = r_min_s.get(r);
+                    while (s < current && !r_min_s.compareAndSet(r, current, s)) {
+                        current = r_min_s.get(r);
+                    }
+                }
+            }
+        });
+
+        this._r_any_s = new int[numRegions];
+        this.t_vertex = new float[2 * this.numTriangles];
+        Parallel.forRange(0, numRegions, parallel_grain_sides, new Parallel.RangeTask() {
+            @Override
+            public void run(int begin, int end) {
+                for (int r = begin; r < end; ++r) {
+                    int s = r_min_s.get(r);
+                    _r_any_s[r] = (s == Integer.MAX_VALUE) ? -1 : s;
+                }
+            }
+        });
+        Parallel.forRange(0, numTriangles, parallel_grain_sides / 3, new Parallel.RangeTask() {
+            @Override
+            public void run(int begin, int end) {
+                build_t_vertex(begin, end);
+            }
+        });
+    }
+
+    private void build_t_vertex(int beginT, int endT) {
+        for (int s = 3 * beginT; s < 3 * endT; s += 3) {
+            int a = 2 * _s_start_r[s  ];
+            int b = 2 * _s_start_r[s+1];
+            int c = 2 * _s_start_r[s+2];
+            int t = 2 * (s/3);
             if (this.s_ghost(s)) {
                 // ghost triangle center is just outside the unpaired side
-                int dx = b[0]-a[0];
-                int dy = b[1]-a[1];
-                this.t_vertex[s/3] = new float[2];
-                this.t_vertex[s/3][0] = a[0] + 0.5f * (dx+dy);
-                this.t_vertex[s/3][1] = a[1] + 0.5f * (dy-dx);
+                float dx = r_vertex[b  ] - r_vertex[a  ];
+                float dy = r_vertex[b+1] - r_vertex[a+1];
+                this.t_vertex[t  ] = r_vertex[a  ] + 0.5f * (dx+dy);
+                this.t_vertex[t+1] = r_vertex[a+1] + 0.5f * (dy-dx);
             } else {
                 // solid triangle center is at the centroid
-                this.t_vertex[s/3] = new float[2];
-                this.t_vertex[s/3][0] = (a[0] + b[0] + c[0]) / 3f;
-                this.t_vertex[s/3][1] = (a[1] + b[1] + c[1]) / 3f;
+                this.t_vertex[t  ] = (r_vertex[a  ] + r_vertex[b  ] + r_vertex[c  ]) / 3f;
+                this.t_vertex[t+1] = (r_vertex[a+1] + r_vertex[b+1] + r_vertex[c+1]) / 3f;
             }
         }
     }
 
-    int s_begin_r(int s)  { return _s_start_r[s]; }
-    int s_end_r(int s)    { return _s_start_r[TriangleMesh.s_next_s(s)]; }
+    public float r_x(int r) { return (r_vertex != null) ? r_vertex[2*r]   : r_quantized.x(r); }
+    public float r_y(int r) { return (r_vertex != null) ? r_vertex[2*r+1] : r_quantized.y(r); }
+    public float t_x(int t) { return (t_vertex != null) ? t_vertex[2*t]   : t_quantized.x(t); }
+    public float t_y(int t) { return (t_vertex != null) ? t_vertex[2*t+1] : t_quantized.y(t); }
+
+    public int s_begin_r(int s)  { return _s_start_r[s]; }
+    public int s_end_r(int s)    { return _s_start_r[TriangleMesh.s_next_s(s)]; }
 
     int s_inner_t(int s)  { return TriangleMesh.s_to_t(s); }
     int s_outer_t(int s)  { return TriangleMesh.s_to_t(_s_opposite_s[s]); }
 
-    int s_opposite_s(int s) { return _s_opposite_s[s]; }
+    public int s_opposite_s(int s) { return _s_opposite_s[s]; }
 
-    int[] t_circulate_s(int[] out_s, int t) { out_s = new int[3]; for (int i = 0; i < 3; i++) { out_s[i] = 3*t + i; } return out_s; }
-    int[] t_circulate_r(int[] out_r, int t) { out_r = new int[3]; for (int i = 0; i < 3; i++) { out_r[i] = this._s_start_r[3*t+i]; } return out_r; }
-    int[] t_circulate_t(int[] out_t, int t) { out_t = new int[3]; for (int i = 0; i < 3; i++) { out_t[i] = this.s_outer_t(3*t+i); } return out_t; }
+    /**
+     * Callback for the allocation free r_visit_* circulators
+     */
+    public interface Visitor {
+        void visit(int id);
+    }
 
-    int[] r_circulate_s(int[] out_s, int r) {
+    // NOTE: the int[] circulators reuse out when it is the right size and allocate a new array otherwise,
+    //       use the IntArray or Visitor versions in per-frame code to avoid allocating altogether
+
+    int[] t_circulate_s(int[] out_s, int t) { out_s = t_out(out_s); for (int i = 0; i < 3; i++) { out_s[i] = 3*t + i; } return out_s; }
+    int[] t_circulate_r(int[] out_r, int t) { out_r = t_out(out_r); for (int i = 0; i < 3; i++) { out_r[i] = this._s_start_r[3*t+i]; } return out_r; }
+    int[] t_circulate_t(int[] out_t, int t) { out_t = t_out(out_t); for (int i = 0; i < 3; i++) { out_t[i] = this.s_outer_t(3*t+i); } return out_t; }
+
+    IntArray t_circulate_s(IntArray out_s, int t) { out_s.clear(); for (int i = 0; i < 3; i++) { out_s.add(3*t + i); } return out_s; }
+    IntArray t_circulate_r(IntArray out_r, int t) { out_r.clear(); for (int i = 0; i < 3; i++) { out_r.add(this._s_start_r[3*t+i]); } return out_r; }
+    IntArray t_circulate_t(IntArray out_t, int t) { out_t.clear(); for (int i = 0; i < 3; i++) { out_t.add(this.s_outer_t(3*t+i)); } return out_t; }
+
+    private static int[] t_out(int[] out) {
+        return (out != null && out.length >= 3) ? out : new int[3];
+    }
+
+    /**
+     * @param r the region
+     * @return the number of sides (and neighboring regions and triangles) around region r
+     */
+    int r_valence(int r) {
         final int s0 = this._r_any_s[r];
+        if (s0 == -1) return 0;
+        int count = 0;
         int s = s0;
-
-        IntArray temp = new IntArray();
         do {
-            temp.add(s);
+            ++count;
             s = TriangleMesh.s_next_s(this._s_opposite_s[s]);
         } while (s != s0);
+        return count;
+    }
 
-        out_s = new int[temp.items.length];
-        out_s = Arrays.copyOf(temp.items, temp.items.length);
+    int[] r_circulate_s(int[] out_s, int r) {
+        final int valence = r_valence(r);
+        if (out_s == null || out_s.length != valence) out_s = new int[valence];
+        if (valence == 0) return out_s;
+
+        final int s0 = this._r_any_s[r];
+        int s = s0;
+        int i = 0;
+        do {
+            out_s[i++] = s;
+            s = TriangleMesh.s_next_s(this._s_opposite_s[s]);
+        } while (s != s0);
         return out_s;
     }
 
     int[] r_circulate_r(int[] out_r, int r) {
+        final int valence = r_valence(r);
+        if (out_r == null || out_r.length != valence) out_r = new int[valence];
+        if (valence == 0) return out_r;
+
         final int s0 = this._r_any_s[r];
         int s = s0;
-
-        IntArray temp = new IntArray();
+        int i = 0;
         do {
-            temp.add(this.s_end_r(s));
+            out_r[i++] = this.s_end_r(s);
             s = TriangleMesh.s_next_s(this._s_opposite_s[s]);
         } while (s != s0);
-
-        out_r = new int[temp.items.length];
-        out_r = Arrays.copyOf(temp.items, temp.items.length);
         return out_r;
     }
 
     int[] r_circulate_t(int[] out_t, int r) {
+        final int valence = r_valence(r);
+        if (out_t == null || out_t.length != valence) out_t = new int[valence];
+        if (valence == 0) return out_t;
+
+        final int s0 = this._r_any_s[r];
+        int s = s0;
+        int i = 0;
+        do {
+            out_t[i++] = TriangleMesh.s_to_t(s);
+            s = TriangleMesh.s_next_s(this._s_opposite_s[s]);
+        } while (s != s0);
+        return out_t;
+    }
+
+    IntArray r_circulate_s(IntArray out_s, int r) {
+        out_s.clear();
         final int s0 = this._r_any_s[r];
+        if (s0 == -1) return out_s;
         int s = s0;
+        do {
+            out_s.add(s);
+            s = TriangleMesh.s_next_s(this._s_opposite_s[s]);
+        } while (s != s0);
+        return out_s;
+    }
 
-        IntArray temp = new IntArray();
+    IntArray r_circulate_r(IntArray out_r, int r) {
+        out_r.clear();
+        final int s0 = this._r_any_s[r];
+        if (s0 == -1) return out_r;
+        int s = s0;
         do {
-            temp.add(TriangleMesh.s_to_t(s));
+            out_r.add(this.s_end_r(s));
             s = TriangleMesh.s_next_s(this._s_opposite_s[s]);
         } while (s != s0);
+        return out_r;
+    }
 
-        out_t = new int[temp.items.length];
-        out_t = Arrays.copyOf(temp.items, temp.items.length);
+    IntArray r_circulate_t(IntArray out_t, int r) {
+        out_t.clear();
+        final int s0 = this._r_any_s[r];
+        if (s0 == -1) return out_t;
+        int s = s0;
+        do {
+            out_t.add(TriangleMesh.s_to_t(s));
+            s = TriangleMesh.s_next_s(this._s_opposite_s[s]);
+        } while (s != s0);
         return out_t;
     }
 
+    void r_visit_s(int r, Visitor visitor) {
+        final int s0 = this._r_any_s[r];
+        if (s0 == -1) return;
+        int s = s0;
+        do {
+            visitor.visit(s);
+            s = TriangleMesh.s_next_s(this._s_opposite_s[s]);
+        } while (s != s0);
+    }
+
+    void r_visit_r(int r, Visitor visitor) {
+        final int s0 = this._r_any_s[r];
+        if (s0 == -1) return;
+        int s = s0;
+        do {
+            visitor.visit(this.s_end_r(s));
+            s = TriangleMesh.s_next_s(this._s_opposite_s[s]);
+        } while (s != s0);
+    }
+
+    void r_visit_t(int r, Visitor visitor) {
+        final int s0 = this._r_any_s[r];
+        if (s0 == -1) return;
+        int s = s0;
+        do {
+            visitor.visit(TriangleMesh.s_to_t(s));
+            s = TriangleMesh.s_next_s(this._s_opposite_s[s]);
+        } while (s != s0);
+    }
+
+    // ------------------------------------------------------------------------
+    // Local edits
+    //
+    // Regions can be inserted, removed or moved without rebuilding the mesh,
+    // only the triangles around the edit are touched and then restored to
+    // Delaunay with edge flips (Lawson's algorithm).
+    //
+    // The mesh layout invariants are kept after every edit:
+    //   - solid sides come before ghost sides, so the first ghost triangle is
+    //     moved to the end to make room for a new solid triangle, and the last
+    //     solid / ghost triangles are moved down to fill the holes left by a removal
+    //   - the ghost region is always the last region, it is renumbered in O(hull)
+    //
+    // So triangle ids aren't stable across edits, region ids are except where noted.
+    // Edits are limited to the interior of the mesh, the convex hull never changes.
+    // Quantized meshes can't be edited, dequantize() them first.
+    // ------------------------------------------------------------------------
+
+    private int version;
+    private IntArray editStack;
+    private IntArray editTriangles;
+
+    /**
+     * @return a counter that changes every time the mesh is edited, for invalidating derived data
+     */
+    public int getVersion() { return version; }
+
+    /**
+     * Walk from solid triangle t towards (x, y)
+     * Solid triangles wind clockwise, so a point on the left of a side is beyond it
+     * @param t the solid triangle to start from
+     * @param x x value of the point
+     * @param y y value of the point
+     * @return the solid triangle containing (x, y), or -1 if the point is outside the convex hull
+     */
+    public int t_walk(int t, float x, float y) {
+        for (int step = 0; step < numTriangles; ++step) {
+            boolean moved = false;
+            for (int i = 0; i < 3; ++i) {
+                // rotate which side is tested first so a walk can't get stuck cycling on degenerate triangles
+                final int s = 3 * t + (i + step) % 3;
+                if (s_side(s, x, y) > 0) {
+                    final int next = s_outer_t(s);
+                    if (t_ghost(next)) return -1;
+                    t = next;
+                    moved = true;
+                    break;
+                }
+            }
+            if (!moved) return t;
+        }
+        return -1;
+    }
+
+    /**
+     * Insert a new region at (x, y) and re-triangulate around it
+     * @param x x value of the new region
+     * @param y y value of the new region
+     * @param t_hint a solid triangle near (x, y) to start the search from, eg. from PointLocator.t_locate()
+     * @return the new region's id, or -1 if (x, y) isn't strictly inside the convex hull or is already a region
+     */
+    public int r_insert(float x, float y, int t_hint) {
+        checkEditable();
+        final int t = t_insertable(x, y, t_hint);
+        if (t == -1) return -1;
+
+        ensureCapacity(numRegions + 1, numSides + 6);
+
+        // The new region takes the ghost region's id and the ghost moves up one
+        final int r = numSolidRegions;
+        moveGhostRegion(r + 1);
+        r_vertex[2*r]   = x;
+        r_vertex[2*r+1] = y;
+        numRegions++;
+        numSolidRegions++;
+
+        // Split t = (a, b, c) into (a, b, r), (b, c, r), (c, a, r)
+        final int t1 = claimSolidTriangle();
+        final int t2 = claimSolidTriangle();
+        final int s0 = 3*t, s1 = 3*t + 1, s2 = 3*t + 2;
+        final int u0 = 3*t1, u1 = 3*t1 + 1, u2 = 3*t1 + 2;
+        final int v0 = 3*t2, v1 = 3*t2 + 1, v2 = 3*t2 + 2;
+        final int a = _s_start_r[s0];
+        final int b = _s_start_r[s1];
+        final int c = _s_start_r[s2];
+        final int o1 = _s_opposite_s[s1];
+        final int o2 = _s_opposite_s[s2];
+
+        _s_start_r[s1] = b; _s_start_r[s2] = r;
+        _s_start_r[u0] = b; _s_start_r[u1] = c; _s_start_r[u2] = r;
+        _s_start_r[v0] = c; _s_start_r[v1] = a; _s_start_r[v2] = r;
+        link(u0, o1);
+        link(v0, o2);
+        link(s1, u2);
+        link(u1, v2);
+        link(v1, s2);
+        _r_any_s[a] = s0;
+        _r_any_s[b] = u0;
+        _r_any_s[c] = v0;
+        _r_any_s[r] = s2;
+        build_t_vertex(t, t + 1);
+        build_t_vertex(t1, t1 + 1);
+        build_t_vertex(t2, t2 + 1);
+
+        IntArray stack = editStack();
+        stack.add(s0);
+        stack.add(u0);
+        stack.add(v0);
+        legalize(stack);
+
+        ++version;
+        return r;
+    }
+
+    /**
+     * Remove an interior region and re-triangulate the hole it leaves
+     * The last solid region is renumbered to r to keep region ids compact
+     * @param r the region to remove, must not be a boundary region or touch the ghost region
+     * @return the old id of the region that now has id r (r itself if it was the last solid region), or -1 if r can't be removed
+     */
+    public int r_remove(int r) {
+        checkEditable();
+        if (!r_removable(r)) return -1;
+
+        // The triangles around r, flips below only ever rearrange these
+        final IntArray star = editTriangles();
+        star.clear();
+        final int first = _r_any_s[r];
+        int s = first;
+        do {
+            star.add(TriangleMesh.s_to_t(s));
+            s = TriangleMesh.s_next_s(_s_opposite_s[s]);
+        } while (s != first);
+
+        // Flip edges away from r until it only has three neighbors. If r sits exactly on the line
+        // between two of its neighbors there may be no strictly convex quad to flip, then allow a flip
+        // that leaves r on the new diagonal, the flat triangle it makes goes away when r is merged out
+        int valence = star.size;
+        while (valence > 3) {
+            boolean flipped = false;
+            for (int pass = 0; pass < 2 && !flipped; ++pass) {
+                final int s0 = _r_any_s[r];
+                s = s0;
+                do {
+                    if (s_flippable(s, pass == 1)) {
+                        flip(s);
+                        --valence;
+                        flipped = true;
+                        break;
+                    }
+                    s = TriangleMesh.s_next_s(_s_opposite_s[s]);
+                } while (s != s0);
+            }
+            if (!flipped) {
+                throw new GdxRuntimeException("Unable to reduce valence of region " + r + ", the mesh is corrupt");
+            }
+        }
+
+        // Merge (r, n0, n1), (r, n2, n0), (r, n1, n2) into (n0, n1, n2)
+        final int sa = _r_any_s[r];
+        final int sb = TriangleMesh.s_next_s(_s_opposite_s[sa]);
+        final int sc = TriangleMesh.s_next_s(_s_opposite_s[sb]);
+        final int ea = TriangleMesh.s_next_s(sa);
+        final int eb = TriangleMesh.s_next_s(sb);
+        final int ec = TriangleMesh.s_next_s(sc);
+        final int n0 = _s_start_r[ea];
+        final int n1 = _s_start_r[ec];
+        final int n2 = _s_start_r[eb];
+        final int oa = _s_opposite_s[ea];
+        final int ob = _s_opposite_s[eb];
+        final int oc = _s_opposite_s[ec];
+        final int t = TriangleMesh.s_to_t(sa);
+        final int deadB = TriangleMesh.s_to_t(sb);
+        final int deadC = TriangleMesh.s_to_t(sc);
+
+        _s_start_r[3*t]     = n0;
+        _s_start_r[3*t + 1] = n1;
+        _s_start_r[3*t + 2] = n2;
+        link(3*t,     oa);
+        link(3*t + 1, oc);
+        link(3*t + 2, ob);
+        _r_any_s[n0] = 3*t;
+        _r_any_s[n1] = 3*t + 1;
+        _r_any_s[n2] = 3*t + 2;
+        _r_any_s[r] = -1;
+        build_t_vertex(t, t + 1);
+
+        // Restore the Delaunay condition over the re-triangulated hole
+        final IntArray stack = editStack();
+        for (int i = 0; i < star.size; ++i) {
+            final int st = star.get(i);
+            if (st == deadB || st == deadC) continue;
+            stack.add(3*st);
+            stack.add(3*st + 1);
+            stack.add(3*st + 2);
+        }
+        legalize(stack);
+
+        // Fill the two unused triangle slots
+        releaseSolidTriangle(Math.max(deadB, deadC));
+        releaseSolidTriangle(Math.min(deadB, deadC));
+
+        // Fill the unused region slot with the last solid region, the ghost region moves down after it
+        final int last = numSolidRegions - 1;
+        if (last != r) {
+            relabelRegion(last, r);
+            r_vertex[2*r]   = r_vertex[2*last];
+            r_vertex[2*r+1] = r_vertex[2*last+1];
+            _r_any_s[r] = _r_any_s[last];
+        }
+        moveGhostRegion(last);
+        numRegions--;
+        numSolidRegions--;
+
+        ++version;
+        return last;
+    }
+
+    /**
+     * Move an interior region to (x, y), keeping every region id the same
+     * @param r the region to move, must not be a boundary region or touch the ghost region
+     * @param x the new x value
+     * @param y the new y value
+     * @return true if the region was moved, false if r can't be removed or (x, y) can't be inserted
+     */
+    public boolean r_move(int r, float x, float y) {
+        checkEditable();
+        if (!r_removable(r)) return false;
+        if (r_x(r) == x && r_y(r) == y) return true;
+
+        // Check the destination up front so a failed move leaves the mesh untouched,
+        // the hull doesn't change when removing an interior region so the answer still holds after
+        final int t = t_insertable(x, y, TriangleMesh.s_to_t(_r_any_s[r]));
+        if (t == -1) return false;
+
+        int neighbor = s_end_r(_r_any_s[r]);
+        final int last = r_remove(r);
+        if (neighbor == last) neighbor = r;
+        final int inserted = r_insert(x, y, TriangleMesh.s_to_t(_r_any_s[neighbor]));
+
+        // r_remove renumbered 'last' to r and r_insert reused 'last' for the moved region, swap them back
+        if (inserted != r) {
+            swapRegions(r, inserted);
+        }
+        return true;
+    }
+
+    /**
+     * @param r the region
+     * @return true if r is an interior region that can be removed or moved
+     */
+    public boolean r_removable(int r) {
+        if (r < numBoundaryRegions || r >= numSolidRegions) return false;
+        final int s0 = _r_any_s[r];
+        if (s0 == -1) return false;
+        int s = s0;
+        do {
+            if (r_ghost(s_end_r(s))) return false;
+            s = TriangleMesh.s_next_s(_s_opposite_s[s]);
+        } while (s != s0);
+        return true;
+    }
+
+    /**
+     * Move every solid region at once, far cheaper than rebuilding the mesh when the moves are small (eg. relaxation)
+     * Regions are moved in bulk keeping the current connectivity and then sides are flipped until the mesh is
+     * Delaunay again. Regions whose move would fold a triangle over are held back from the bulk move and then
+     * moved one at a time with r_move(), so region ids are unchanged.
+     * @param r_next interleaved [x, y, ...] new positions for the solid regions, regions on the convex hull must not move
+     * @return the number of regions that couldn't be moved and were left where they were (see r_move()),
+     *         or -1 with the mesh untouched if a region on the convex hull would move or a solid triangle
+     *         is already degenerate, rebuild the mesh instead
+     */
+    public int r_relocate(final float[] r_next) {
+        checkEditable();
+        for (int s = numSolidSides; s < numSides; ++s) {
+            final int r = _s_start_r[s];
+            if (!r_ghost(r) && (r_next[2*r] != r_vertex[2*r] || r_next[2*r + 1] != r_vertex[2*r + 1])) return -1;
+        }
+
+        // Solid triangles wind clockwise, any that don't at the new positions have folded over,
+        // put their moving corners back and check again until nothing is folded, a triangle that
+        // is still folded with every corner back in place was degenerate to begin with
+        final float[] target = Arrays.copyOf(r_next, 2 * numSolidRegions);
+        final IntArray held = editTriangles();
+        held.clear();
+        boolean folded = true;
+        while (folded) {
+            folded = false;
+            for (int s = 0; s < numSolidSides; s += 3) {
+                final int a = 2 * _s_start_r[s];
+                final int b = 2 * _s_start_r[s+1];
+                final int c = 2 * _s_start_r[s+2];
+                final double ax = target[a], ay = target[a+1];
+                if ((target[b] - ax) * (target[c+1] - ay) - (target[b+1] - ay) * (target[c] - ax) < 0) continue;
+                boolean restored = false;
+                for (int i = 0; i < 3; ++i) {
+                    final int r = _s_start_r[s+i];
+                    if (target[2*r] != r_vertex[2*r] || target[2*r + 1] != r_vertex[2*r + 1]) {
+                        target[2*r]     = r_vertex[2*r];
+                        target[2*r + 1] = r_vertex[2*r + 1];
+                        held.add(r);
+                        restored = true;
+                    }
+                }
+                if (!restored) return -1;
+                folded = true;
+            }
+        }
+
+        System.arraycopy(target, 0, r_vertex, 0, 2 * numSolidRegions);
+        if (numSides >= parallel_min_sides && Parallel.getNumThreads() > 1) {
+            Parallel.forRange(0, numTriangles, parallel_grain_sides / 3, new Parallel.RangeTask() {
+                @Override
+                public void run(int begin, int end) {
+                    build_t_vertex(begin, end);
+                }
+            });
+        } else {
+            build_t_vertex(0, numTriangles);
+        }
+
+        final IntArray stack = editStack();
+        stack.ensureCapacity(numSolidSides / 2);
+        for (int s = 0; s < numSolidSides; ++s) {
+            if (s < _s_opposite_s[s]) stack.add(s);
+        }
+        legalize(stack);
+        ++version;
+
+        // r_move uses the edit scratch arrays, so the held regions are copied out first
+        final int[] heldRegions = held.toArray();
+        int stuck = 0;
+        for (int r : heldRegions) {
+            if (!r_move(r, r_next[2*r], r_next[2*r + 1])) {
+                ++stuck;
+            }
+        }
+        return stuck;
+    }
+
+    /**
+     * @return the solid triangle (x, y) can be inserted into, -1 if it is outside or on the hull, or a duplicate
+     */
+    private int t_insertable(float x, float y, int t_hint) {
+        if (t_hint < 0 || t_hint >= numSolidTriangles) t_hint = 0;
+        final int t = t_walk(t_hint, x, y);
+        if (t == -1) return -1;
+        for (int s = 3*t; s < 3*t + 3; ++s) {
+            final int r = _s_start_r[s];
+            if (r_x(r) == x && r_y(r) == y) return -1;
+            if (s_ghost(_s_opposite_s[s]) && s_side(s, x, y) == 0) return -1;
+        }
+        return t;
+    }
+
+    /**
+     * @return > 0 if (x, y) is beyond side s (left of it), < 0 if inside (right of it), 0 if on the line
+     */
+    private double s_side(int s, float x, float y) {
+        final int a = _s_start_r[s];
+        final int b = _s_start_r[TriangleMesh.s_next_s(s)];
+        final double ax = r_x(a), ay = r_y(a);
+        return (r_x(b) - ax) * (y - ay) - (r_y(b) - ay) * (x - ax);
+    }
+
+    /**
+     * @param allowFlatStart also allow flips that leave the start of s exactly on the new diagonal
+     * @return true if flipping the edge of side s gives two valid triangles, ie. its quad is strictly convex
+     */
+    private boolean s_flippable(int s, boolean allowFlatStart) {
+        final int b = _s_opposite_s[s];
+        if (s_ghost(s) || s_ghost(b)) return false;
+        final int u = 2 * _s_start_r[s];
+        final int v = 2 * _s_start_r[TriangleMesh.s_next_s(s)];
+        final int w = 2 * _s_start_r[TriangleMesh.s_prev_s(s)];
+        final int x = 2 * _s_start_r[TriangleMesh.s_prev_s(b)];
+        // the new diagonal w-x has to separate u and v
+        final double wx = r_vertex[w], wy = r_vertex[w + 1];
+        final double dx = r_vertex[x] - wx, dy = r_vertex[x + 1] - wy;
+        final double sideU = dx * (r_vertex[u + 1] - wy) - dy * (r_vertex[u] - wx);
+        final double sideV = dx * (r_vertex[v + 1] - wy) - dy * (r_vertex[v] - wx);
+        if (allowFlatStart && sideU == 0) return sideV != 0;
+        return (sideU > 0 && sideV < 0) || (sideU < 0 && sideV > 0);
+    }
+
+    /**
+     * Flip the edge between the triangles of side a and its opposite side b
+     *   before: a (u, v, w) and b (v, u, x)
+     *   after:  a (u, x, w) and b (v, w, x)
+     * Sides a and b keep their start regions, next(a) / next(b) become the new diagonal
+     */
+    private void flip(int a) {
+        final int b = _s_opposite_s[a];
+        final int a1 = TriangleMesh.s_next_s(a);
+        final int b1 = TriangleMesh.s_next_s(b);
+        final int u = _s_start_r[a];
+        final int v = _s_start_r[b];
+        final int w = _s_start_r[TriangleMesh.s_prev_s(a)];
+        final int x = _s_start_r[TriangleMesh.s_prev_s(b)];
+        final int oa1 = _s_opposite_s[a1];
+        final int ob1 = _s_opposite_s[b1];
+
+        _s_start_r[a1] = x;
+        _s_start_r[b1] = w;
+        link(a, ob1);
+        link(b, oa1);
+        link(a1, b1);
+        _r_any_s[u] = a;
+        _r_any_s[v] = b;
+
+        final int ta = TriangleMesh.s_to_t(a);
+        final int tb = TriangleMesh.s_to_t(b);
+        build_t_vertex(ta, ta + 1);
+        build_t_vertex(tb, tb + 1);
+    }
+
+    /**
+     * Lawson's algorithm, flip every side on the stack that fails the Delaunay condition
+     * and push the four outer sides of each flipped quad to be checked in turn
+     */
+    private void legalize(IntArray stack) {
+        while (stack.size > 0) {
+            final int a = stack.pop();
+            final int b = _s_opposite_s[a];
+            if (s_ghost(a) || s_ghost(b)) continue;
+
+            final int u = 2 * _s_start_r[a];
+            final int v = 2 * _s_start_r[TriangleMesh.s_next_s(a)];
+            final int w = 2 * _s_start_r[TriangleMesh.s_prev_s(a)];
+            final int x = 2 * _s_start_r[TriangleMesh.s_prev_s(b)];
+            if (!inCircle(r_vertex[w], r_vertex[w + 1],
+                          r_vertex[u], r_vertex[u + 1],
+                          r_vertex[v], r_vertex[v + 1],
+                          r_vertex[x], r_vertex[x + 1])) continue;
+
+            flip(a);
+            stack.add(a);
+            stack.add(TriangleMesh.s_prev_s(a));
+            stack.add(b);
+            stack.add(TriangleMesh.s_prev_s(b));
+        }
+    }
+
+    /**
+     * Same test as SweepHullTriangulator, but nearly cocircular points count as legal
+     * so rounding can't make the edge flip back and forth forever
+     */
+    private static boolean inCircle(double ax, double ay, double bx, double by, double cx, double cy, double px, double py) {
+        final double dx = ax - px;
+        final double dy = ay - py;
+        final double ex = bx - px;
+        final double ey = by - py;
+        final double fx = cx - px;
+        final double fy = cy - py;
+
+        final double ap = dx * dx + dy * dy;
+        final double bp = ex * ex + ey * ey;
+        final double cp = fx * fx + fy * fy;
+
+        final double det = dx * (ey * cp - bp * fy)
+                         - dy * (ex * cp - bp * fx)
+                         + ap * (ex * fy - ey * fx);
+        final double scale = (Math.abs(dx) + Math.abs(dy)) * (Math.abs(ex) + Math.abs(ey)) * (Math.abs(fx) + Math.abs(fy))
+                           * (Math.abs(dx) + Math.abs(dy) + Math.abs(ex) + Math.abs(ey) + Math.abs(fx) + Math.abs(fy));
+        return det < -1e-12 * scale;
+    }
+
+    private void link(int a, int b) {
+        _s_opposite_s[a] = b;
+        _s_opposite_s[b] = a;
+    }
+
+    /**
+     * Turn the first ghost triangle slot into a solid triangle slot by moving that ghost triangle to the end
+     * @return the new solid triangle slot, its sides need to be filled in
+     */
+    private int claimSolidTriangle() {
+        final int t = numSolidTriangles;
+        moveTriangle(t, numTriangles);
+        numTriangles++;
+        numSides += 3;
+        numSolidTriangles++;
+        numSolidSides += 3;
+        return t;
+    }
+
+    /**
+     * Drop an unused solid triangle slot by moving the last solid triangle into it
+     * and then the last ghost triangle into the slot that frees up
+     */
+    private void releaseSolidTriangle(int t) {
+        final int lastSolid = numSolidTriangles - 1;
+        if (t != lastSolid) {
+            moveTriangle(lastSolid, t);
+        }
+        moveTriangle(numTriangles - 1, lastSolid);
+        numTriangles--;
+        numSides -= 3;
+        numSolidTriangles--;
+        numSolidSides -= 3;
+    }
+
+    private void moveTriangle(int from, int to) {
+        for (int i = 0; i < 3; ++i) {
+            final int src = 3*from + i;
+            final int dst = 3*to + i;
+            final int r = _s_start_r[src];
+            final int o = _s_opposite_s[src];
+            _s_start_r[dst] = r;
+            _s_opposite_s[dst] = o;
+            _s_opposite_s[o] = dst;
+            if (_r_any_s[r] == src) {
+                _r_any_s[r] = dst;
+            }
+        }
+        t_vertex[2*to]     = t_vertex[2*from];
+        t_vertex[2*to + 1] = t_vertex[2*from + 1];
+    }
+
+    /**
+     * Give the ghost region (always the last region) a new id, only ghost sides can start at it
+     */
+    private void moveGhostRegion(int to) {
+        final int from = numRegions - 1;
+        for (int s = numSolidSides; s < numSides; ++s) {
+            if (_s_start_r[s] == from) {
+                _s_start_r[s] = to;
+            }
+        }
+        r_vertex[2*to]     = r_vertex[2*from];
+        r_vertex[2*to + 1] = r_vertex[2*from + 1];
+        _r_any_s[to] = _r_any_s[from];
+    }
+
+    /**
+     * Point every side starting at region 'from' at region 'to' instead
+     * Circulation only follows opposite / next links, so this is safe to do while circulating
+     */
+    private void relabelRegion(int from, int to) {
+        final int s0 = _r_any_s[from];
+        int s = s0;
+        do {
+            _s_start_r[s] = to;
+            s = TriangleMesh.s_next_s(_s_opposite_s[s]);
+        } while (s != s0);
+    }
+
+    private void swapRegions(int r0, int r1) {
+        final int s0 = _r_any_s[r0];
+        final int s1 = _r_any_s[r1];
+        relabelRegion(r0, r1);
+        _r_any_s[r0] = s1;
+        _r_any_s[r1] = s0;
+        // r1's sides are still found through s1 since relabeling doesn't change links
+        int s = s1;
+        do {
+            _s_start_r[s] = r0;
+            s = TriangleMesh.s_next_s(_s_opposite_s[s]);
+        } while (s != s1);
+
+        final float x = r_vertex[2*r0];
+        final float y = r_vertex[2*r0 + 1];
+        r_vertex[2*r0]     = r_vertex[2*r1];
+        r_vertex[2*r0 + 1] = r_vertex[2*r1 + 1];
+        r_vertex[2*r1]     = x;
+        r_vertex[2*r1 + 1] = y;
+    }
+
+    /**
+     * Grow the arrays by half again when they run out of room, so a run of edits is amortized O(1) per edit
+     */
+    private void ensureCapacity(int regions, int sides) {
+        if (regions > _r_any_s.length) {
+            final int capacity = Math.max(regions, _r_any_s.length + _r_any_s.length / 2);
+            _r_any_s = Arrays.copyOf(_r_any_s, capacity);
+            r_vertex = Arrays.copyOf(r_vertex, 2 * capacity);
+        }
+        if (sides > _s_start_r.length) {
+            final int triangles = Math.max(sides / 3, (_s_start_r.length / 3) + (_s_start_r.length / 6));
+            _s_start_r = Arrays.copyOf(_s_start_r, 3 * triangles);
+            _s_opposite_s = Arrays.copyOf(_s_opposite_s, 3 * triangles);
+            t_vertex = Arrays.copyOf(t_vertex, 2 * triangles);
+        }
+    }
+
+    private IntArray editStack() {
+        if (editStack == null) editStack = new IntArray();
+        editStack.clear();
+        return editStack;
+    }
+
+    private IntArray editTriangles() {
+        if (editTriangles == null) editTriangles = new IntArray();
+        return editTriangles;
+    }
+
+    // ------------------------------------------------------------------------
+    // Quantized storage
+    //
+    // Region and triangle coordinates can be swapped for 16 bit fixed point
+    // (see QuantizedPoints), halving the memory they take on very large meshes.
+    // The float accessors decode on the fly so rendering and picking keep working,
+    // but a quantized mesh is read only until it is dequantized again.
+    //
+    // Triangles get their own grid over their bounding box, ghost triangle
+    // centers sit just outside the hull so they wouldn't fit the regions' grid.
+    // ------------------------------------------------------------------------
+
+    /**
+     * @return true if the coordinates are stored as 16 bit fixed point, see quantize()
+     */
+    public boolean isQuantized() { return r_vertex == null; }
+
+    /**
+     * Store coordinates as 16 bit fixed point within the bounding box of the regions
+     * Regions move by at most half a step of 1/65535 of the mesh's width / height
+     */
+    public void quantize() {
+        if (isQuantized()) return;
+        quantize(new QuantizedPoints(r_vertex, numRegions));
+    }
+
+    /**
+     * Store coordinates as 16 bit fixed point relative to a chunk's bounds,
+     * meshes quantized with the same bounds snap regions to the same grid
+     * @param bounds the area the region grid covers, regions outside it are clamped to its edges
+     */
+    public void quantize(Rectangle bounds) {
+        if (isQuantized()) return;
+        quantize(new QuantizedPoints(r_vertex, numRegions, bounds));
+    }
+
+    private void quantize(QuantizedPoints regions) {
+        r_quantized = regions;
+        t_quantized = new QuantizedPoints(t_vertex, numTriangles);
+        r_vertex = null;
+        t_vertex = null;
+        ++version;
+    }
+
+    /**
+     * Switch back to float coordinates so the mesh can be edited again
+     * The regions keep their quantization error, so nearly cocircular sides are flipped back to Delaunay
+     * and triangle centers are recalculated, triangles smaller than a grid step may have collapsed though
+     */
+    public void dequantize() {
+        if (!isQuantized()) return;
+        // size to the index arrays rather than the counts, ensureCapacity() only grows
+        // the coordinate arrays together with them so any spare capacity has to survive
+        r_vertex = r_quantized.toFloats(new float[2 * _r_any_s.length]);
+        t_vertex = new float[2 * (_s_start_r.length / 3)];
+        r_quantized = null;
+        t_quantized = null;
+        build_t_vertex(0, numTriangles);
+
+        final IntArray stack = editStack();
+        stack.ensureCapacity(numSolidSides / 2);
+        for (int s = 0; s < numSolidSides; ++s) {
+            if (s < _s_opposite_s[s]) stack.add(s);
+        }
+        legalize(stack);
+        ++version;
+    }
+
+    private void checkEditable() {
+        if (isQuantized()) {
+            throw new GdxRuntimeException("Unable to edit a quantized triangle mesh, dequantize() it first");
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Binary file format
+    //
+    // Little endian, a header of 7 ints followed by the arrays back to back
+    //   magic, version, flags, numBoundaryRegions, numSolidSides, numRegions, numSides
+    //   coordinates, either
+    //     r_vertex[2 * numRegions], t_vertex[2 * numTriangles]                    (float)
+    //   or if flags has file_flag_quantized set
+    //     region originX, originY, stepX, stepY, triangle originX, originY, stepX, stepY (float)
+    //     r_quantized[2 * numRegions], t_quantized[2 * numTriangles]              (unsigned short)
+    //   _r_any_s[numRegions], _s_start_r[numSides], _s_opposite_s[numSides]       (int)
+    //
+    // Everything is 4 byte aligned so load() can bulk copy each array
+    // straight out of a memory mapped view of the file.
+    // Version 1 files have no flags int and always store floats, they still load.
+    // ------------------------------------------------------------------------
+
+    private static final int file_magic = 0x544D5348; // 'TMSH'
+    private static final int file_version = 2;
+    private static final int file_flag_quantized = 1;
+    private static final int file_header_bytes = 7 * 4;
+    private static final int file_header_bytes_v1 = 6 * 4;
+    private static final int file_write_buffer_bytes = 1 << 16;
+
+    /**
+     * Write this mesh in the binary format read by load()
+     * @param file the file to write, must be writable (local, external or absolute)
+     */
+    public void save(FileHandle file) {
+        FileOutputStream output = null;
+        try {
+            file.parent().mkdirs();
+            output = new FileOutputStream(file.file());
+            FileChannel channel = output.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(file_write_buffer_bytes).order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putInt(file_magic);
+            buffer.putInt(file_version);
+            buffer.putInt(isQuantized() ? file_flag_quantized : 0);
+            buffer.putInt(numBoundaryRegions);
+            buffer.putInt(numSolidSides);
+            buffer.putInt(numRegions);
+            buffer.putInt(numSides);
+            if (isQuantized()) {
+                putGrid(buffer, r_quantized);
+                putGrid(buffer, t_quantized);
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+
+            if (isQuantized()) {
+                writeShorts(channel, buffer, r_quantized.getValues(), 2 * numRegions);
+                writeShorts(channel, buffer, t_quantized.getValues(), 2 * numTriangles);
+            } else {
+                writeFloats(channel, buffer, r_vertex, 2 * numRegions);
+                writeFloats(channel, buffer, t_vertex, 2 * numTriangles);
+            }
+            writeInts(channel, buffer, _r_any_s, numRegions);
+            writeInts(channel, buffer, _s_start_r, numSides);
+            writeInts(channel, buffer, _s_opposite_s, numSides);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Unable to save triangle mesh: " + file, e);
+        } finally {
+            StreamUtils.closeQuietly(output);
+        }
+    }
+
+    /**
+     * Read a mesh written by save(), memory mapping the file when it's on the file system
+     * @param file the file to read
+     * @return the mesh
+     */
+    public static TriangleMesh load(FileHandle file) {
+        RandomAccessFile input = null;
+        try {
+            final ByteBuffer buffer;
+            final File path = file.file();
+            if (file.type() != Files.FileType.Classpath && path.exists()) {
+                input = new RandomAccessFile(path, "r");
+                buffer = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+            } else {
+                // Classpath and packaged internal files aren't on the file system, read them into memory instead
+                buffer = ByteBuffer.wrap(file.readBytes());
+            }
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.remaining() < file_header_bytes_v1 || buffer.getInt() != file_magic) {
+                throw new GdxRuntimeException("Not a triangle mesh: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != file_version && version != 1) {
+                throw new GdxRuntimeException("Unsupported triangle mesh version " + version + ": " + file);
+            }
+            int flags              = (version == 1) ? 0 : buffer.getInt();
+            int numBoundaryRegions = buffer.getInt();
+            int numSolidSides      = buffer.getInt();
+            int numRegions         = buffer.getInt();
+            int numSides           = buffer.getInt();
+            boolean quantized = (flags & file_flag_quantized) != 0;
+            long headerBytes = (version == 1) ? file_header_bytes_v1 : file_header_bytes;
+            long coordinateBytes = quantized
+                    ? 8 * 4 + 2L * (2L * numRegions + 2L * (numSides / 3))
+                    : 4L * (2L * numRegions + 2L * (numSides / 3));
+            long expectedBytes = headerBytes + coordinateBytes + 4L * (numRegions + 2L * numSides);
+            if (numRegions < 1 || numSides < 0 || numSides % 3 != 0 || buffer.capacity() != expectedBytes) {
+                throw new GdxRuntimeException("Corrupt triangle mesh: " + file);
+            }
+
+            float[] r_vertex = null;
+            float[] t_vertex = null;
+            QuantizedPoints r_quantized = null;
+            QuantizedPoints t_quantized = null;
+            if (quantized) {
+                float[] r_grid = readFloats(buffer, 4);
+                float[] t_grid = readFloats(buffer, 4);
+                r_quantized = new QuantizedPoints(readShorts(buffer, 2 * numRegions), numRegions, r_grid[0], r_grid[1], r_grid[2], r_grid[3]);
+                t_quantized = new QuantizedPoints(readShorts(buffer, 2 * (numSides / 3)), numSides / 3, t_grid[0], t_grid[1], t_grid[2], t_grid[3]);
+            } else {
+                r_vertex = readFloats(buffer, 2 * numRegions);
+                t_vertex = readFloats(buffer, 2 * (numSides / 3));
+            }
+            int[] _r_any_s      = readInts(buffer, numRegions);
+            int[] _s_start_r    = readInts(buffer, numSides);
+            int[] _s_opposite_s = readInts(buffer, numSides);
+
+            TriangleMesh mesh = new TriangleMesh(numBoundaryRegions, numSolidSides, numRegions, _s_start_r, _s_opposite_s, _r_any_s);
+            mesh.r_vertex = r_vertex;
+            mesh.t_vertex = t_vertex;
+            mesh.r_quantized = r_quantized;
+            mesh.t_quantized = t_quantized;
+            return mesh;
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Unable to load triangle mesh: " + file, e);
+        } finally {
+            StreamUtils.closeQuietly(input);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values, int length) throws IOException {
+        for (int offset = 0; offset < length; ) {
+            int count = Math.min(buffer.capacity() / 4, length - offset);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, offset, count);
+            buffer.limit(count * 4);
+            writeFully(channel, buffer);
+            offset += count;
+        }
+    }
+
+    private static void writeFloats(FileChannel channel, ByteBuffer buffer, float[] values, int length) throws IOException {
+        for (int offset = 0; offset < length; ) {
+            int count = Math.min(buffer.capacity() / 4, length - offset);
+            buffer.clear();
+            buffer.asFloatBuffer().put(values, offset, count);
+            buffer.limit(count * 4);
+            writeFully(channel, buffer);
+            offset += count;
+        }
+    }
+
+    private static void writeShorts(FileChannel channel, ByteBuffer buffer, short[] values, int length) throws IOException {
+        for (int offset = 0; offset < length; ) {
+            int count = Math.min(buffer.capacity() / 2, length - offset);
+            buffer.clear();
+            buffer.asShortBuffer().put(values, offset, count);
+            buffer.limit(count * 2);
+            writeFully(channel, buffer);
+            offset += count;
+        }
+    }
+
+    private static void putGrid(ByteBuffer buffer, QuantizedPoints points) {
+        buffer.putFloat(points.getOriginX());
+        buffer.putFloat(points.getOriginY());
+        buffer.putFloat(points.getStepX());
+        buffer.putFloat(points.getStepY());
+    }
+
+    private static short[] readShorts(ByteBuffer buffer, int count) {
+        short[] values = new short[count];
+        buffer.asShortBuffer().get(values);
+        buffer.position(buffer.position() + count * 2);
+        return values;
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    private static float[] readFloats(ByteBuffer buffer, int count) {
+        float[] values = new float[count];
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
     int ghost_r() { return this.numRegions - 1; }
     boolean s_ghost(int s) { return s >= this.numSolidSides; }
     boolean r_ghost(int r) { return r == this.numRegions - 1; }
@@ -0,0 +1,199 @@
+package zendo.games.sandbox_gdx.dual_mesh;
+
+/**
+ * The polygon around every solid region of a TriangleMesh, extracted in bulk
+ *
+ * Polygons are stored compressed-sparse-row style:
+ *   - offsets[r] .. offsets[r+1] is the range of vertices belonging to region r
+ *   - vertex i is at (coords[2i], coords[2i+1])
+ * so drawing or hit testing every cell is a linear pass over two flat arrays.
+ *
+ * Cell vertices are either the triangle centroids already stored in the mesh,
+ * or the triangle circumcenters which give the true Voronoi diagram.
+ * Boundary regions use the ghost triangle centers just outside the hull either way.
+ *
+ * The cells are rebuilt lazily, whenever they are read after the mesh's version changes.
+ */
+public class VoronoiCells {
+
+    public enum Mode { CENTROID, CIRCUMCENTER }
+
+    private final TriangleMesh mesh;
+    private final Mode mode;
+
+    private int builtVersion;
+    private int numCells;
+    private int[] offsets;
+    private float[] coords;
+    private float[] t_center;
+
+    public VoronoiCells(TriangleMesh mesh, Mode mode) {
+        this.mesh = mesh;
+        this.mode = mode;
+        this.numCells = 0;
+        this.offsets = new int[1];
+        this.coords = new float[0];
+        this.t_center = new float[0];
+        build();
+    }
+
+    public TriangleMesh getMesh() { return mesh; }
+    public Mode getMode() { return mode; }
+
+    /**
+     * Rebuild the cells if the mesh was edited since they were last built
+     * @return true if the cells were rebuilt
+     */
+    public boolean update() {
+        if (builtVersion == mesh.getVersion()) return false;
+        build();
+        return true;
+    }
+
+    /**
+     * @return the number of cells, one per solid region
+     */
+    public int getNumCells() {
+        update();
+        return numCells;
+    }
+
+    /**
+     * @return vertex offsets per region, region r's vertices are [offsets[r], offsets[r+1]), valid up to getNumCells()
+     */
+    public int[] getOffsets() {
+        update();
+        return offsets;
+    }
+
+    /**
+     * @return interleaved [x0, y0, x1, y1, ...] cell vertices, indexed by the values in getOffsets()
+     */
+    public float[] getCoords() {
+        update();
+        return coords;
+    }
+
+    /**
+     * @param r the region
+     * @return the number of vertices in the region's cell
+     */
+    public int getNumVertices(int r) {
+        update();
+        return offsets[r + 1] - offsets[r];
+    }
+
+    /**
+     * Check whether (x, y) is inside the cell of region r
+     * @param r the region
+     * @param x x value of the point
+     * @param y y value of the point
+     * @return true if the point is inside the cell
+     */
+    public boolean contains(int r, float x, float y) {
+        update();
+        final int begin = offsets[r];
+        final int end = offsets[r + 1];
+        boolean inside = false;
+        for (int i = begin, j = end - 1; i < end; j = i++) {
+            final float xi = coords[2 * i], yi = coords[2 * i + 1];
+            final float xj = coords[2 * j], yj = coords[2 * j + 1];
+            if (((yi > y) != (yj > y)) && (x < (xj - xi) * (y - yi) / (yj - yi) + xi)) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private void build() {
+        builtVersion = mesh.getVersion();
+        numCells = mesh.numSolidRegions;
+
+        final float[] centers;
+        if (mode == Mode.CENTROID && !mesh.isQuantized()) {
+            centers = mesh.t_vertex;
+        } else {
+            if (t_center.length < 2 * mesh.numTriangles) {
+                t_center = new float[2 * mesh.numTriangles];
+            }
+            if (mode == Mode.CIRCUMCENTER) {
+                build_t_circumcenter();
+            } else {
+                // quantized mesh, decode the centers once rather than once per cell corner
+                for (int t = 0; t < mesh.numTriangles; ++t) {
+                    t_center[2 * t]     = mesh.t_x(t);
+                    t_center[2 * t + 1] = mesh.t_y(t);
+                }
+            }
+            centers = t_center;
+        }
+
+        if (offsets.length < numCells + 1) {
+            offsets = new int[numCells + 1];
+        }
+        int numVertices = 0;
+        for (int r = 0; r < numCells; ++r) {
+            offsets[r] = numVertices;
+            numVertices += mesh.r_valence(r);
+        }
+        offsets[numCells] = numVertices;
+
+        if (coords.length < 2 * numVertices) {
+            coords = new float[2 * numVertices];
+        }
+        final int[] _r_any_s = mesh._r_any_s;
+        final int[] _s_opposite_s = mesh._s_opposite_s;
+        for (int r = 0; r < numCells; ++r) {
+            final int s0 = _r_any_s[r];
+            if (s0 == -1) continue;
+            int i = 2 * offsets[r];
+            int s = s0;
+            do {
+                final int t = TriangleMesh.s_to_t(s);
+                coords[i++] = centers[2 * t];
+                coords[i++] = centers[2 * t + 1];
+                s = TriangleMesh.s_next_s(_s_opposite_s[s]);
+            } while (s != s0);
+        }
+    }
+
+    private void build_t_circumcenter() {
+        for (int t = 0; t < mesh.numSolidTriangles; ++t) {
+            t_circumcenter(mesh, t, t_center);
+        }
+        // ghost triangles keep their center just outside the hull
+        for (int t = mesh.numSolidTriangles; t < mesh.numTriangles; ++t) {
+            t_center[2 * t]     = mesh.t_x(t);
+            t_center[2 * t + 1] = mesh.t_y(t);
+        }
+    }
+
+    /**
+     * Calculate the circumcenter of a solid triangle
+     * @param mesh the mesh
+     * @param t the solid triangle
+     * @param out the circumcenter is written to out[2t], out[2t+1], or the centroid if the triangle is flat
+     */
+    static void t_circumcenter(TriangleMesh mesh, int t, float[] out) {
+        final int[] _s_start_r = mesh._s_start_r;
+        final int a = _s_start_r[3 * t];
+        final int b = _s_start_r[3 * t + 1];
+        final int c = _s_start_r[3 * t + 2];
+        final double ax = mesh.r_x(a), ay = mesh.r_y(a);
+        final double dx = mesh.r_x(b) - ax, dy = mesh.r_y(b) - ay;
+        final double ex = mesh.r_x(c) - ax, ey = mesh.r_y(c) - ay;
+        final double bl = dx * dx + dy * dy;
+        final double cl = ex * ex + ey * ey;
+        final double det = dx * ey - dy * ex;
+        if (det == 0) {
+            // flat triangle, its circumcenter is at infinity so fall back to the centroid
+            out[2 * t]     = mesh.t_x(t);
+            out[2 * t + 1] = mesh.t_y(t);
+            return;
+        }
+        final double d = 0.5 / det;
+        out[2 * t]     = (float) (ax + (ey * bl - dy * cl) * d);
+        out[2 * t + 1] = (float) (ay + (dx * cl - ex * bl) * d);
+    }
+
+}
@@ -12,6 +12,11 @@ import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.FloatArray;
+import zendo.games.sandbox_gdx.dual_mesh.LloydRelaxation;
+import zendo.games.sandbox_gdx.dual_mesh.MeshGenerator;
+import zendo.games.sandbox_gdx.dual_mesh.PointLocator;
+import zendo.games.sandbox_gdx.dual_mesh.TriangleMesh;
+import zendo.games.sandbox_gdx.dual_mesh.VoronoiCells;
 import zendo.games.sandbox_gdx.utils.Assets;
 import zendo.games.sandbox_gdx.utils.BlueNoiseGenerator;
 import zendo.games.sandbox_gdx.utils.ConcaveHull;
@@ -27,9 +32,17 @@ public class MeshScreen extends BaseScreen {
     PolygonSpriteBatch polys;
 
     List<Vector2> concaveSamples;
-    List<Vector2> samples;
     ZenPolygon polygon;
     ConcaveHull concaveHull;
+    ConcaveHull.Engine concaveHullEngine = ConcaveHull.Engine.DIG;
+
+    MeshGenerator meshGenerator;
+    LloydRelaxation meshRelaxation;
+    TriangleMesh mesh;
+    PointLocator meshLocator;
+    VoronoiCells meshCells;
+    int pickedRegion = -1;
+    int pickedTriangle = -1;
 
     float N = 1.5f;
 
@@ -61,6 +74,10 @@ public class MeshScreen extends BaseScreen {
 //        concaveHull = new ConcaveHull(concaveSamples);
         concaveHull = new ConcaveHull(testSamples);
 
+        meshGenerator = new MeshGenerator();
+        meshRelaxation = new LloydRelaxation(meshGenerator);
+        generateMesh();
+
         camera.translate(-camera.viewportWidth / 2f, -camera.viewportHeight / 2f);
         camera.zoom = 0.22f;
         Gdx.input.setInputProcessor(this);
@@ -78,7 +95,8 @@ public class MeshScreen extends BaseScreen {
             final Rectangle points_bounds = new Rectangle(-width / 2f, -height / 2f, width, height);
             BlueNoiseGenerator pointsGenerator = new BlueNoiseGenerator(points_bounds, num_boundary_samples, num_samples);
             concaveSamples = pointsGenerator.getSamples();
-            concaveHull.generateConcaveHull(concaveSamples);
+            concaveHull.generateConcaveHull(concaveSamples, concaveHullEngine);
+            generateMesh();
 
             Rectangle bounds = concaveHull.getMinRect();
             camera.position.x = bounds.x + bounds.width  / 2f;
@@ -86,6 +104,25 @@ public class MeshScreen extends BaseScreen {
             camera.update();
         }
 
+        if (Gdx.input.isKeyJustPressed(Input.Keys.H)) {
+            concaveHullEngine = (concaveHullEngine == ConcaveHull.Engine.DIG) ? ConcaveHull.Engine.CHI_SHAPE : ConcaveHull.Engine.DIG;
+            concaveHull.generateConcaveHull((concaveSamples != null) ? concaveSamples : testSamples, concaveHullEngine);
+        }
+
+        if (Gdx.input.isKeyJustPressed(Input.Keys.R)) {
+            mesh = meshRelaxation.relax(mesh, 1);
+            meshLocator = new PointLocator(mesh);
+            meshCells = new VoronoiCells(mesh, VoronoiCells.Mode.CIRCUMCENTER);
+            pickedRegion = -1;
+            pickedTriangle = -1;
+        }
+
+        if (Gdx.input.isKeyJustPressed(Input.Keys.X) && pickedRegion != -1) {
+            mesh.r_remove(pickedRegion);
+            pickedRegion = -1;
+            pickedTriangle = -1;
+        }
+
         if (Gdx.input.isKeyJustPressed(Input.Keys.EQUALS)) {
             N += 0.1f;
         }
@@ -114,6 +151,7 @@ public class MeshScreen extends BaseScreen {
         batch.end();
 
         shapes.setProjectionMatrix(camera.combined);
+        renderMesh();
         concaveHull.renderConvexHull(shapes);
         concaveHull.renderConcaveHull(shapes);
 //        concaveHull.renderInnerPoints(shapes);
@@ -176,6 +214,13 @@ public class MeshScreen extends BaseScreen {
     public boolean touchDown(int screenX, int screenY, int pointer, int button) {
         cameraTouchStart.set(camera.position);
         touchStart.set(screenX, screenY, 0);
+
+        camera.unproject(tp.set(screenX, screenY, 0));
+        if (button == Input.Buttons.RIGHT) {
+            mesh.r_insert(tp.x, tp.y, meshLocator.t_locate(tp.x, tp.y));
+        }
+        pickedTriangle = meshLocator.t_locate(tp.x, tp.y);
+        pickedRegion = meshLocator.r_locate(tp.x, tp.y);
         return true;
     }
 
@@ -226,6 +271,61 @@ public class MeshScreen extends BaseScreen {
         camera.update();
     }
 
+    private void generateMesh() {
+        final float boundary_spacing = 10f;
+        final int max_samples = 1000;
+        final Rectangle mesh_bounds = new Rectangle(-width / 2f, -height / 2f, width, height);
+        BlueNoiseGenerator pointsGenerator = new BlueNoiseGenerator(mesh_bounds, 0, max_samples);
+        mesh = meshGenerator.createMesh(mesh_bounds, boundary_spacing, pointsGenerator.getPoints());
+        meshLocator = new PointLocator(mesh);
+        meshCells = new VoronoiCells(mesh, VoronoiCells.Mode.CIRCUMCENTER);
+        pickedRegion = -1;
+        pickedTriangle = -1;
+    }
+
+    private void renderMesh() {
+        shapes.begin(ShapeRenderer.ShapeType.Line);
+        {
+            shapes.setColor(Color.DARK_GRAY);
+            for (int s = 0; s < mesh.numSolidSides; ++s) {
+                int r0 = mesh.s_begin_r(s);
+                int r1 = mesh.s_end_r(s);
+                // interior edges have two solid sides, only draw one of them
+                if (r0 < r1 || mesh.s_opposite_s(s) >= mesh.numSolidSides) {
+                    shapes.line(mesh.r_x(r0), mesh.r_y(r0), mesh.r_x(r1), mesh.r_y(r1));
+                }
+            }
+            if (pickedTriangle != -1) {
+                shapes.setColor(Color.YELLOW);
+                for (int s = 3 * pickedTriangle; s < 3 * pickedTriangle + 3; ++s) {
+                    int r0 = mesh.s_begin_r(s);
+                    int r1 = mesh.s_end_r(s);
+                    shapes.line(mesh.r_x(r0), mesh.r_y(r0), mesh.r_x(r1), mesh.r_y(r1));
+                }
+            }
+            if (pickedRegion != -1) {
+                final int[] offsets = meshCells.getOffsets();
+                final int count = offsets[pickedRegion + 1] - offsets[pickedRegion];
+                if (count >= 3) {
+                    shapes.setColor(Color.ORANGE);
+                    shapes.polygon(meshCells.getCoords(), 2 * offsets[pickedRegion], 2 * count);
+                }
+            }
+            shapes.setColor(Color.WHITE);
+        }
+        shapes.end();
+
+        if (pickedRegion != -1) {
+            shapes.begin(ShapeRenderer.ShapeType.Filled);
+            {
+                shapes.setColor(Color.ORANGE);
+                shapes.circle(mesh.r_x(pickedRegion), mesh.r_y(pickedRegion), 1.5f);
+                shapes.setColor(Color.WHITE);
+            }
+            shapes.end();
+        }
+    }
+
     private FloatArray generateSamplePoints() {
         return generateSamplePoints(500, 500);
     }
@@ -234,12 +334,7 @@ public class MeshScreen extends BaseScreen {
         final int num_samples = 0;
         final Rectangle points_bounds = new Rectangle(-width / 2f, -height / 2f, width, height);
         BlueNoiseGenerator pointsGenerator = new BlueNoiseGenerator(points_bounds, num_samples, 50);
-        FloatArray points = new FloatArray();
-        samples = pointsGenerator.getSamples();
-        for (Vector2 sample : samples) {
-            points.addAll(sample.x, sample.y);
-        }
-        return points;
+        return new FloatArray(pointsGenerator.getPoints());
     }
 
 }
@@ -1,25 +1,51 @@
 package zendo.games.sandbox_gdx.utils;
 
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 public class BlueNoiseGenerator {
 
+    /**
+     * Minimum distance between samples as a function of position, used for variable density sampling
+     */
+    public interface RadiusFunction {
+        float radius(float x, float y);
+    }
+
     private static final float default_annulus_radius = 10f;
     private static final int default_create_attempts = 30;
+    private static final float bounds_margin = 10f;
+
+    // Width of a parallel tile in grid cells, fixed so the output doesn't depend on the thread count
+    private static final int parallel_tile_cells = 64;
 
     private int numCreateAttempts;
     private int numBoundsSamples;
     private int maxSamples;
     private float annulusRadius;
-    private List<Vector2> samples;
     private Rectangle bounds;
 
+    // Samples are stored interleaved [x0, y0, x1, y1, ...], boxed samples are only built on request
+    private FloatArray points;
+    private IntArray activeList;
+    private List<Vector2> samples;
+
+    private PoissonDiskSampler sampler;
+
+    // Variable density sampling, only used when radiusFunction is set
+    private RadiusFunction radiusFunction;
+    private float minRadius;
+    private float maxRadius;
+    private VariablePoissonDiskSampler variableSampler;
+
     public BlueNoiseGenerator(Rectangle bounds, int numBoundsSamples, int maxSamples) {
         this(default_annulus_radius, default_create_attempts, bounds, numBoundsSamples, maxSamples);
     }
@@ -30,16 +56,51 @@ public class BlueNoiseGenerator {
         this.bounds = bounds;
         this.numBoundsSamples = numBoundsSamples;
         this.maxSamples = maxSamples;
+        this.points = new FloatArray();
+        this.activeList = new IntArray();
+        this.sampler = new PoissonDiskSampler();
+        generate();
+    }
+
+    /**
+     * Variable density generator, the minimum distance between samples comes from radiusFunction
+     * Where radii differ, two samples only have to be as far apart as the smaller of their radii
+     * NOTE: only generate() honors radiusFunction, generateParallel() throws and generateFromTiles() ignores it
+     * @param radiusFunction the minimum distance at each position, clamped to [minRadius, maxRadius]
+     * @param minRadius the smallest radius radiusFunction returns
+     * @param maxRadius the largest radius radiusFunction returns
+     */
+    public BlueNoiseGenerator(RadiusFunction radiusFunction, float minRadius, float maxRadius,
+                              int numCreateAttempts, Rectangle bounds, int maxSamples) {
+        this.radiusFunction = radiusFunction;
+        this.minRadius = minRadius;
+        this.maxRadius = maxRadius;
+        this.annulusRadius = minRadius;
+        this.numCreateAttempts = numCreateAttempts;
+        this.bounds = bounds;
+        this.numBoundsSamples = 0;
+        this.maxSamples = maxSamples;
+        this.points = new FloatArray();
+        this.activeList = new IntArray();
+        this.sampler = new PoissonDiskSampler();
+        this.variableSampler = new VariablePoissonDiskSampler();
         generate();
     }
 
     public void generate() {
-        Vector2 initialSample = new Vector2(
-                bounds.x + MathUtils.random(bounds.width),
-                bounds.y + MathUtils.random(bounds.height)
-        );
-        samples = new ArrayList<Vector2>();
-        samples.add(initialSample);
+        points.clear();
+        samples = null;
+
+        if (radiusFunction != null) {
+            variableSampler.reset(minRadius, maxRadius, numCreateAttempts);
+            variableSampler.fill(MathUtils.random, radiusFunction,
+                    bounds.x + bounds_margin, bounds.y + bounds_margin,
+                    bounds.x + bounds.width - bounds_margin, bounds.y + bounds.height - bounds_margin,
+                    maxSamples, points, activeList);
+            return;
+        }
+
+        sampler.reset(bounds, annulusRadius, numCreateAttempts);
 
         /*
         if (numBoundsSamples > 0) {
@@ -59,65 +120,143 @@ public class BlueNoiseGenerator {
         }
         */
 
-        int numCreated = 0;
-        List<Vector2> activeList = new ArrayList<Vector2>();
-        activeList.add(initialSample);
-        while (activeList.size() > 0 && samples.size() < maxSamples) {
-            int lastActiveIndex = activeList.size() - 1;
-            int currentActiveIndex = MathUtils.random(lastActiveIndex);
-            Collections.swap(activeList,  lastActiveIndex, currentActiveIndex);
-            Vector2 currentSample = activeList.get(lastActiveIndex);
-
-            boolean didCreateSample = false;
-            for (int i = 0; i < numCreateAttempts; ++i) {
-                float theta = MathUtils.random(360f);
-                float radius = MathUtils.random(annulusRadius) + annulusRadius;
-                Vector2 newSample = new Vector2(
-                        radius * MathUtils.cosDeg(theta),
-                        radius * MathUtils.sinDeg(theta)
-                ).add(currentSample);
-
-                boolean isValidSample = true;
-                for (Vector2 existingSample : samples) {
-                    if (newSample.dst(existingSample) <= annulusRadius) {
-                        isValidSample = false;
-                        break;
-                    }
+        sampler.fill(MathUtils.random,
+                bounds.x + bounds_margin, bounds.y + bounds_margin,
+                bounds.x + bounds.width - bounds_margin, bounds.y + bounds.height - bounds_margin,
+                0, 0, sampler.getGridWidth(), sampler.getGridHeight(),
+                maxSamples, points, activeList);
+    }
+
+    /**
+     * Generate samples on all cores by splitting bounds into square tiles of grid cells
+     *
+     * Tiles are processed in 4 phases by the parity of their (x, y) tile coordinates, so tiles
+     * running at the same time are never adjacent and each tile checks its candidates against
+     * the samples already placed by its neighbors in earlier phases. This keeps the minimum
+     * distance guarantee across tile seams without any post-process.
+     *
+     * Each tile uses its own RNG seeded from (seed, tileX, tileY) and tiles are concatenated in
+     * row-major order, so the output only depends on the seed and not on the thread count.
+     * NOTE: maxSamples truncates the concatenated output rather than stopping the sampling early
+     * NOTE: uniform spacing only, a variable density generator has to use generate()
+     * @param seed the seed for the per-tile random number generators
+     * @throws GdxRuntimeException if this generator was built with a RadiusFunction
+     */
+    public void generateParallel(final long seed) {
+        if (radiusFunction != null) {
+            throw new GdxRuntimeException("BlueNoiseGenerator.generateParallel() doesn't support a RadiusFunction, use generate()");
+        }
+        points.clear();
+        samples = null;
+        sampler.reset(bounds, annulusRadius, numCreateAttempts);
+
+        final int tile_cells = parallel_tile_cells;
+        final int gridWidth  = sampler.getGridWidth();
+        final int gridHeight = sampler.getGridHeight();
+        final int numTilesX = (gridWidth  + tile_cells - 1) / tile_cells;
+        final int numTilesY = (gridHeight + tile_cells - 1) / tile_cells;
+        final FloatArray[] tilePoints = new FloatArray[numTilesX * numTilesY];
+
+        final IntArray phaseTiles = new IntArray();
+        for (int phase = 0; phase < 4; ++phase) {
+            phaseTiles.clear();
+            for (int ty = (phase / 2); ty < numTilesY; ty += 2) {
+                for (int tx = (phase % 2); tx < numTilesX; tx += 2) {
+                    phaseTiles.add(ty * numTilesX + tx);
                 }
+            }
 
-                if (isValidSample) {
-                    final float margin = 10f;
-                    if (bounds.x + margin <= newSample.x && newSample.x < bounds.x + bounds.width - margin
-                     && bounds.y + margin <= newSample.y && newSample.y < bounds.y + bounds.height - margin) {
-                        samples.add(newSample);
-                        activeList.add(newSample);
-                        didCreateSample = true;
-                        numCreated++;
+            Parallel.forRange(0, phaseTiles.size, 1, new Parallel.RangeTask() {
+                @Override
+                public void run(int begin, int end) {
+                    IntArray tileActiveList = new IntArray();
+                    for (int i = begin; i < end; ++i) {
+                        int tile = phaseTiles.get(i);
+                        int tx = tile % numTilesX;
+                        int ty = tile / numTilesX;
+                        FloatArray out = new FloatArray();
+                        sampler.fill(new RandomXS128(PoissonDiskSampler.seedFor(seed, tx, ty)),
+                                bounds.x + bounds_margin, bounds.y + bounds_margin,
+                                bounds.x + bounds.width - bounds_margin, bounds.y + bounds.height - bounds_margin,
+                                tx * tile_cells, ty * tile_cells,
+                                Math.min((tx + 1) * tile_cells, gridWidth), Math.min((ty + 1) * tile_cells, gridHeight),
+                                Integer.MAX_VALUE, out, tileActiveList);
+                        tilePoints[tile] = out;
                     }
                 }
-            }
+            });
+        }
 
-            if (!didCreateSample) {
-                activeList.remove(lastActiveIndex);
-            }
+        int numTileSamples = 0;
+        for (FloatArray tile : tilePoints) {
+            numTileSamples += tile.size / 2;
+        }
+        int remaining = Math.min(numTileSamples, maxSamples);
+        points.ensureCapacity(remaining * 2);
+        for (FloatArray tile : tilePoints) {
+            int count = Math.min(tile.size / 2, remaining);
+            if (count <= 0) break;
+            points.addAll(tile.items, 0, count * 2);
+            remaining -= count;
         }
+    }
 
-        // Remove duplicate samples because I'm a terrible programmer
-        for (int i = samples.size() - 1; i >= 0; --i) {
-            boolean isDuplicate = false;
-            for (int j = samples.size() - 1; j >= 0; --j) {
-                if (i == j) continue;
-                if (samples.get(i) == samples.get(j)) {
-                    isDuplicate = true;
-                    break;
-                }
-            }
-            if (isDuplicate) {
-                samples.remove(i);
-            }
+    /**
+     * Generate samples by stamping a precomputed tile set across bounds instead of running Bridson's
+     * algorithm, this does no distance tests so it is cheap enough to run every frame
+     * NOTE: the spacing comes from the tile set, annulusRadius, numCreateAttempts and any RadiusFunction are ignored
+     * @param tileSet the tile set to stamp, see BlueNoiseTileSet.build()
+     */
+    public void generateFromTiles(BlueNoiseTileSet tileSet) {
+        points.clear();
+        samples = null;
+        tileSet.stamp(bounds, bounds_margin, MathUtils.random, maxSamples, points);
+    }
+
+    public int getNumSamples() { return points.size / 2; }
+
+    /**
+     * Interleaved sample coordinates [x0, y0, x1, y1, ...]
+     * NOTE: this buffer is owned by the generator and is overwritten by the next call to generate()
+     * @return the sample coordinates
+     */
+    public FloatArray getPoints() { return points; }
+
+    /**
+     * Copy the interleaved sample coordinates into a caller supplied array
+     * @param out the array to fill, a new one is allocated if it is null or too small
+     * @return the filled array, valid values are in [0, 2 * getNumSamples())
+     */
+    public float[] getPoints(float[] out) {
+        if (out == null || out.length < points.size) {
+            out = new float[points.size];
         }
+        System.arraycopy(points.items, 0, out, 0, points.size);
+        return out;
     }
 
-    public List<Vector2> getSamples() { return samples; }
+    /**
+     * Compact copy of the samples, 16 bit fixed point within the generator's bounds,
+     * half the size of getPoints() for sample sets that are kept around
+     * @return the quantized sample coordinates
+     */
+    public QuantizedPoints getQuantizedPoints() {
+        return new QuantizedPoints(points.items, getNumSamples(), bounds);
+    }
+
+    /**
+     * Boxed view of the samples, built on first request after each generate()
+     * Prefer getPoints() for large sample sets
+     * @return the samples as a list of Vector2
+     */
+    public List<Vector2> getSamples() {
+        if (samples == null) {
+            samples = new ArrayList<Vector2>(getNumSamples());
+            for (int i = 0; i < points.size; i += 2) {
+                samples.add(new Vector2(points.items[i], points.items[i + 1]));
+            }
+        }
+        return samples;
+    }
 
 }
@@ -0,0 +1,236 @@
+package zendo.games.sandbox_gdx.utils;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * Lazily generated blue noise over an unbounded plane, split into square chunks
+ *
+ * Chunks are generated on demand as they come into view and the least recently
+ * used ones are evicted once more than maxCachedChunks are held, so memory stays
+ * flat no matter how far the view pans.
+ *
+ * Each chunk has a phase given by the parity of its (x, y) chunk coordinates.
+ * A chunk only checks its candidates against neighboring chunks with a lower
+ * phase, generating them first if needed, and same phase chunks are never
+ * adjacent. So the samples in a chunk are a pure function of (seed, chunkX, chunkY)
+ * regardless of the order chunks are visited or evicted, and the minimum distance
+ * holds across chunk borders.
+ */
+public class BlueNoiseStreamer {
+
+    private static final int default_create_attempts = 30;
+
+    public static class Chunk {
+        public int x;
+        public int y;
+        public final FloatArray points = new FloatArray();
+        int visibleFrame;
+
+        // Neighbors in the least recently used order
+        Chunk older;
+        Chunk newer;
+    }
+
+    private final long seed;
+    private final float annulusRadius;
+    private final int numCreateAttempts;
+    private final float chunkSize;
+    private final int maxCachedChunks;
+
+    private final LongMap<Chunk> chunks;
+    private Chunk oldest;
+    private Chunk newest;
+    private final Pool<Chunk> chunkPool;
+    private final Array<Chunk> visibleChunks;
+    private int frame;
+
+    // Scratch state for generating a single chunk
+    private final PoissonDiskSampler sampler;
+    private final RandomXS128 random;
+    private final IntArray activeList;
+    private final Rectangle sampleBounds;
+    private final Rectangle view;
+
+    public BlueNoiseStreamer(long seed, float annulusRadius, float chunkSize, int maxCachedChunks) {
+        this(seed, annulusRadius, default_create_attempts, chunkSize, maxCachedChunks);
+    }
+
+    public BlueNoiseStreamer(long seed, float annulusRadius, int numCreateAttempts, float chunkSize, int maxCachedChunks) {
+        if (chunkSize <= annulusRadius) {
+            throw new GdxRuntimeException("BlueNoiseStreamer chunkSize must be larger than annulusRadius");
+        }
+        this.seed = seed;
+        this.annulusRadius = annulusRadius;
+        this.numCreateAttempts = numCreateAttempts;
+        this.chunkSize = chunkSize;
+        this.maxCachedChunks = maxCachedChunks;
+
+        this.chunks = new LongMap<Chunk>();
+        this.chunkPool = new Pool<Chunk>() {
+            @Override
+            protected Chunk newObject() {
+                return new Chunk();
+            }
+        };
+        this.visibleChunks = new Array<Chunk>();
+        this.frame = 0;
+
+        this.sampler = new PoissonDiskSampler();
+        this.random = new RandomXS128();
+        this.activeList = new IntArray();
+        this.sampleBounds = new Rectangle();
+        this.view = new Rectangle();
+    }
+
+    /**
+     * Make sure every chunk overlapping the camera's view is loaded, then evict old chunks
+     * @param camera the camera to stream around
+     */
+    public void update(OrthographicCamera camera) {
+        final float width  = camera.viewportWidth  * camera.zoom;
+        final float height = camera.viewportHeight * camera.zoom;
+        update(view.set(camera.position.x - width / 2f, camera.position.y - height / 2f, width, height));
+    }
+
+    /**
+     * Make sure every chunk overlapping view is loaded, then evict the least recently used
+     * chunks beyond maxCachedChunks, chunks overlapping view are never evicted
+     * @param view the area that should be covered by samples
+     */
+    public void update(Rectangle view) {
+        ++frame;
+        visibleChunks.clear();
+        final int minX = chunkCoord(view.x);
+        final int minY = chunkCoord(view.y);
+        final int maxX = chunkCoord(view.x + view.width);
+        final int maxY = chunkCoord(view.y + view.height);
+        for (int y = minY; y <= maxY; ++y) {
+            for (int x = minX; x <= maxX; ++x) {
+                Chunk chunk = getChunk(x, y);
+                chunk.visibleFrame = frame;
+                visibleChunks.add(chunk);
+            }
+        }
+
+        Chunk chunk = oldest;
+        while (chunks.size > maxCachedChunks && chunk != null) {
+            final Chunk evicted = chunk;
+            chunk = chunk.newer;
+            if (evicted.visibleFrame == frame) continue;
+            unlink(evicted);
+            chunks.remove(key(evicted.x, evicted.y));
+            chunkPool.free(evicted);
+        }
+    }
+
+    /**
+     * @return the chunks overlapping the view passed to the last update() call
+     */
+    public Array<Chunk> getVisibleChunks() { return visibleChunks; }
+
+    public int getNumCachedChunks() { return chunks.size; }
+
+    public float getChunkSize() { return chunkSize; }
+
+    public int chunkCoord(float worldCoord) { return (int) Math.floor(worldCoord / chunkSize); }
+
+    /**
+     * Fetch the chunk at chunk coordinates (x, y), generating it if it isn't cached
+     * @param x the chunk x coordinate
+     * @param y the chunk y coordinate
+     * @return the chunk
+     */
+    public Chunk getChunk(int x, int y) {
+        final long key = key(x, y);
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = chunkPool.obtain();
+            chunk.x = x;
+            chunk.y = y;
+            chunk.points.clear();
+            chunk.visibleFrame = -1;
+            generate(chunk);
+            chunks.put(key, chunk);
+        } else {
+            unlink(chunk);
+        }
+        link(chunk);
+        return chunk;
+    }
+
+    /**
+     * Append a chunk to the newest end of the least recently used list
+     */
+    private void link(Chunk chunk) {
+        chunk.older = newest;
+        chunk.newer = null;
+        if (newest != null) newest.newer = chunk;
+        else                oldest = chunk;
+        newest = chunk;
+    }
+
+    private void unlink(Chunk chunk) {
+        if (chunk.older != null) chunk.older.newer = chunk.newer;
+        else                     oldest = chunk.newer;
+        if (chunk.newer != null) chunk.newer.older = chunk.older;
+        else                     newest = chunk.older;
+        chunk.older = null;
+        chunk.newer = null;
+    }
+
+    private void generate(Chunk chunk) {
+        final int phase = phase(chunk.x, chunk.y);
+
+        // Load lower phase neighbors before touching the shared scratch state, this may recurse
+        for (int y = chunk.y - 1; y <= chunk.y + 1; ++y) {
+            for (int x = chunk.x - 1; x <= chunk.x + 1; ++x) {
+                if (phase(x, y) < phase) {
+                    getChunk(x, y);
+                }
+            }
+        }
+
+        final float minX = chunk.x * chunkSize;
+        final float minY = chunk.y * chunkSize;
+        sampleBounds.set(minX - annulusRadius, minY - annulusRadius,
+                         chunkSize + 2f * annulusRadius, chunkSize + 2f * annulusRadius);
+        sampler.reset(sampleBounds, annulusRadius, numCreateAttempts);
+
+        // Only neighbor samples within annulusRadius of this chunk can conflict with it
+        for (int y = chunk.y - 1; y <= chunk.y + 1; ++y) {
+            for (int x = chunk.x - 1; x <= chunk.x + 1; ++x) {
+                if (phase(x, y) >= phase) continue;
+                FloatArray neighborPoints = chunks.get(key(x, y)).points;
+                for (int i = 0; i < neighborPoints.size; i += 2) {
+                    float px = neighborPoints.items[i];
+                    float py = neighborPoints.items[i + 1];
+                    if (sampleBounds.contains(px, py)) {
+                        sampler.put(px, py);
+                    }
+                }
+            }
+        }
+
+        random.setSeed(PoissonDiskSampler.seedFor(seed, chunk.x, chunk.y));
+        sampler.fill(random, minX, minY, minX + chunkSize, minY + chunkSize,
+                0, 0, sampler.getGridWidth(), sampler.getGridHeight(),
+                Integer.MAX_VALUE, chunk.points, activeList);
+    }
+
+    private static int phase(int x, int y) {
+        return (x & 1) + 2 * (y & 1);
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+}
@@ -0,0 +1,364 @@
+package zendo.games.sandbox_gdx.utils;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.StreamUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Precomputed set of square blue noise tiles that can be stamped in any arrangement
+ *
+ * Every tile shares the same 'band' of samples within annulusRadius of its edges,
+ * and only the 'core' samples further inside differ between variants. The band is
+ * sampled on a torus and is symmetric under 90 degree rotations about the tile center,
+ * so any variant at any rotation lines up with any other across a seam. Core samples
+ * are always more than annulusRadius from the tile edge, so they can't conflict with
+ * a neighboring tile.
+ *
+ * Building a tile set is a one time cost, after that stamp() generates samples in
+ * O(output) with no distance tests at all. The price is that the shared band repeats
+ * along every tile seam.
+ */
+public class BlueNoiseTileSet {
+
+    private static final int file_magic = 0x424E5453; // 'BNTS'
+    private static final int file_version = 1;
+
+    private static final int default_create_attempts = 30;
+    private static final float default_tile_size_radii = 16f;
+    private static final int default_num_variants = 8;
+
+    private final float annulusRadius;
+    private final float tileSize;
+    private final FloatArray band;
+    private final FloatArray[] cores;
+
+    private BlueNoiseTileSet(float annulusRadius, float tileSize, FloatArray band, FloatArray[] cores) {
+        this.annulusRadius = annulusRadius;
+        this.tileSize = tileSize;
+        this.band = band;
+        this.cores = cores;
+    }
+
+    public float getAnnulusRadius() { return annulusRadius; }
+    public float getTileSize() { return tileSize; }
+    public int getNumVariants() { return cores.length; }
+
+    // ------------------------------------------------------------------------
+    // Building
+    // ------------------------------------------------------------------------
+
+    public static BlueNoiseTileSet build(float annulusRadius, long seed) {
+        return build(annulusRadius, annulusRadius * default_tile_size_radii, default_num_variants, default_create_attempts, seed);
+    }
+
+    /**
+     * Build a new tile set, this runs Bridson's algorithm once for the shared band and once per variant
+     * @param annulusRadius the minimum distance between samples
+     * @param tileSize the width and height of a tile, must be larger than 4 * annulusRadius
+     * @param numVariants the number of distinct tile interiors
+     * @param numCreateAttempts the number of candidates tried around each active sample
+     * @param seed the seed for the random number generator
+     * @return the tile set
+     */
+    public static BlueNoiseTileSet build(float annulusRadius, float tileSize, int numVariants, int numCreateAttempts, long seed) {
+        if (tileSize <= 4f * annulusRadius) {
+            throw new GdxRuntimeException("BlueNoiseTileSet tileSize must be larger than 4 * annulusRadius");
+        }
+        if (numVariants < 1) {
+            throw new GdxRuntimeException("BlueNoiseTileSet needs at least one variant");
+        }
+
+        final TorusGrid grid = new TorusGrid(tileSize, annulusRadius);
+        final Random random = new RandomXS128(seed);
+        final IntArray activeList = new IntArray();
+
+        final FloatArray band = new FloatArray();
+        grid.clear();
+        fill(grid, random, numCreateAttempts, true, band, activeList);
+        final float[] bandCells = Arrays.copyOf(grid.cells, grid.cells.length);
+
+        final FloatArray[] cores = new FloatArray[numVariants];
+        for (int i = 0; i < numVariants; ++i) {
+            System.arraycopy(bandCells, 0, grid.cells, 0, bandCells.length);
+            cores[i] = new FloatArray();
+            fill(grid, random, numCreateAttempts, false, cores[i], activeList);
+            cores[i].shrink();
+        }
+        band.shrink();
+
+        return new BlueNoiseTileSet(annulusRadius, tileSize, band, cores);
+    }
+
+    /**
+     * Run Bridson's algorithm on the torus, either in the band along the tile edges
+     * (inserting all 4 rotations of each accepted sample) or in the core of the tile
+     */
+    private static void fill(TorusGrid grid, Random random, int numCreateAttempts, boolean inBand,
+                             FloatArray out, IntArray activeList) {
+        final float size = grid.size;
+        final float radius = grid.radius;
+        final float[] orbit = new float[8];
+        activeList.clear();
+
+        for (int i = 0; i < numCreateAttempts && activeList.size == 0; ++i) {
+            tryAdd(grid, random.nextFloat() * size, random.nextFloat() * size, inBand, orbit, out, activeList);
+        }
+
+        while (activeList.size > 0) {
+            int lastActiveIndex = activeList.size - 1;
+            activeList.swap(lastActiveIndex, random.nextInt(lastActiveIndex + 1));
+            int currentSample = activeList.get(lastActiveIndex);
+            float currentX = out.items[currentSample * 2];
+            float currentY = out.items[currentSample * 2 + 1];
+
+            boolean didCreateSample = false;
+            for (int i = 0; i < numCreateAttempts; ++i) {
+                float theta = random.nextFloat() * 360f;
+                float dist = radius + random.nextFloat() * radius;
+                float x = grid.wrap(currentX + dist * MathUtils.cosDeg(theta));
+                float y = grid.wrap(currentY + dist * MathUtils.sinDeg(theta));
+                if (tryAdd(grid, x, y, inBand, orbit, out, activeList)) {
+                    didCreateSample = true;
+                }
+            }
+
+            if (!didCreateSample) {
+                activeList.removeIndex(lastActiveIndex);
+            }
+        }
+    }
+
+    private static boolean tryAdd(TorusGrid grid, float x, float y, boolean inBand,
+                                  float[] orbit, FloatArray out, IntArray activeList) {
+        final float size = grid.size;
+        final float radius = grid.radius;
+        final float edgeDist = Math.min(Math.min(x, size - x), Math.min(y, size - y));
+        if (inBand != (edgeDist <= radius)) return false;
+
+        if (!inBand) {
+            if (!grid.isFree(x, y)) return false;
+            grid.put(x, y);
+            activeList.add(out.size / 2);
+            out.add(x);
+            out.add(y);
+            return true;
+        }
+
+        // Band samples are inserted with all their rotations about the tile center,
+        // which have to be clear of existing samples and of each other
+        orbit[0] = x;
+        orbit[1] = y;
+        for (int i = 2; i < 8; i += 2) {
+            orbit[i]     = grid.wrap(size - orbit[i - 1]);
+            orbit[i + 1] = orbit[i - 2];
+        }
+        final float radius2 = radius * radius;
+        for (int i = 0; i < 8; i += 2) {
+            if (!grid.isFree(orbit[i], orbit[i + 1])) return false;
+            for (int j = i + 2; j < 8; j += 2) {
+                if (grid.dst2(orbit[i], orbit[i + 1], orbit[j], orbit[j + 1]) <= radius2) return false;
+            }
+        }
+        for (int i = 0; i < 8; i += 2) {
+            grid.put(orbit[i], orbit[i + 1]);
+            activeList.add(out.size / 2);
+            out.add(orbit[i]);
+            out.add(orbit[i + 1]);
+        }
+        return true;
+    }
+
+    /**
+     * Background grid over a square torus, cells are at most radius / sqrt(2) wide
+     */
+    private static class TorusGrid {
+        final float size;
+        final float radius;
+        final int numCells;
+        final float cellSize;
+        final float[] cells;
+
+        TorusGrid(float size, float radius) {
+            this.size = size;
+            this.radius = radius;
+            this.numCells = MathUtils.ceil(size / (radius / (float) Math.sqrt(2)));
+            this.cellSize = size / numCells;
+            this.cells = new float[numCells * numCells * 2];
+        }
+
+        void clear() { Arrays.fill(cells, Float.NaN); }
+
+        float wrap(float v) {
+            v %= size;
+            if (v < 0f) v += size;
+            return (v >= size) ? 0f : v;
+        }
+
+        int cell(float v) { return Math.min((int) (v / cellSize), numCells - 1); }
+
+        float dst2(float x1, float y1, float x2, float y2) {
+            float dx = Math.abs(x2 - x1);
+            float dy = Math.abs(y2 - y1);
+            dx = Math.min(dx, size - dx);
+            dy = Math.min(dy, size - dy);
+            return dx * dx + dy * dy;
+        }
+
+        boolean isFree(float x, float y) {
+            final int cx = cell(x);
+            final int cy = cell(y);
+            final float radius2 = radius * radius;
+            for (int oy = -2; oy <= 2; ++oy) {
+                int gy = (cy + oy + numCells) % numCells;
+                for (int ox = -2; ox <= 2; ++ox) {
+                    int gx = (cx + ox + numCells) % numCells;
+                    int index = (gy * numCells + gx) * 2;
+                    float sx = cells[index];
+                    if (Float.isNaN(sx)) continue;
+                    if (dst2(x, y, sx, cells[index + 1]) <= radius2) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        void put(float x, float y) {
+            int index = (cell(y) * numCells + cell(x)) * 2;
+            cells[index]     = x;
+            cells[index + 1] = y;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Stamping
+    // ------------------------------------------------------------------------
+
+    /**
+     * Cover bounds with tiles picked at random variant and rotation, appending the samples that
+     * fall in [bounds.x + margin, bounds.x + bounds.width - margin) x [...] to out
+     * @param bounds the area to cover, tiles are aligned to its bottom left corner
+     * @param margin the distance from the edge of bounds where no samples are placed
+     * @param random the source of randomness for picking variants and rotations
+     * @param maxSamples stop once out holds this many samples
+     * @param out interleaved [x, y, ...] samples are appended here
+     */
+    public void stamp(Rectangle bounds, float margin, Random random, int maxSamples, FloatArray out) {
+        final float minX = bounds.x + margin;
+        final float minY = bounds.y + margin;
+        final float maxX = bounds.x + bounds.width  - margin;
+        final float maxY = bounds.y + bounds.height - margin;
+        final int numTilesX = MathUtils.ceil(bounds.width  / tileSize);
+        final int numTilesY = MathUtils.ceil(bounds.height / tileSize);
+
+        for (int ty = 0; ty < numTilesY; ++ty) {
+            for (int tx = 0; tx < numTilesX; ++tx) {
+                final float tileX = bounds.x + tx * tileSize;
+                final float tileY = bounds.y + ty * tileSize;
+                final FloatArray core = cores[random.nextInt(cores.length)];
+                final int rotation = random.nextInt(4);
+
+                for (int i = 0; i < band.size && out.size / 2 < maxSamples; i += 2) {
+                    emit(tileX + band.items[i], tileY + band.items[i + 1], minX, minY, maxX, maxY, out);
+                }
+                for (int i = 0; i < core.size && out.size / 2 < maxSamples; i += 2) {
+                    float x = core.items[i];
+                    float y = core.items[i + 1];
+                    for (int r = 0; r < rotation; ++r) {
+                        float t = x;
+                        x = tileSize - y;
+                        y = t;
+                    }
+                    emit(tileX + x, tileY + y, minX, minY, maxX, maxY, out);
+                }
+            }
+        }
+    }
+
+    private static void emit(float x, float y, float minX, float minY, float maxX, float maxY, FloatArray out) {
+        if (minX <= x && x < maxX && minY <= y && y < maxY) {
+            out.add(x);
+            out.add(y);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Serialization
+    // ------------------------------------------------------------------------
+
+    public void save(FileHandle file) {
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(file.write(false)));
+            output.writeInt(file_magic);
+            output.writeInt(file_version);
+            output.writeFloat(annulusRadius);
+            output.writeFloat(tileSize);
+            output.writeInt(cores.length);
+            writePoints(output, band);
+            for (FloatArray core : cores) {
+                writePoints(output, core);
+            }
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Unable to save blue noise tile set: " + file, e);
+        } finally {
+            StreamUtils.closeQuietly(output);
+        }
+    }
+
+    public static BlueNoiseTileSet load(FileHandle file) {
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(file.read(8192));
+            if (input.readInt() != file_magic) {
+                throw new GdxRuntimeException("Not a blue noise tile set: " + file);
+            }
+            int version = input.readInt();
+            if (version != file_version) {
+                throw new GdxRuntimeException("Unsupported blue noise tile set version " + version + ": " + file);
+            }
+            float annulusRadius = input.readFloat();
+            float tileSize = input.readFloat();
+            int numVariants = input.readInt();
+            FloatArray band = readPoints(input);
+            FloatArray[] cores = new FloatArray[numVariants];
+            for (int i = 0; i < numVariants; ++i) {
+                cores[i] = readPoints(input);
+            }
+            return new BlueNoiseTileSet(annulusRadius, tileSize, band, cores);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Unable to load blue noise tile set: " + file, e);
+        } finally {
+            StreamUtils.closeQuietly(input);
+        }
+    }
+
+    private static void writePoints(DataOutputStream output, FloatArray points) throws IOException {
+        output.writeInt(points.size);
+        for (int i = 0; i < points.size; ++i) {
+            output.writeFloat(points.items[i]);
+        }
+    }
+
+    private static FloatArray readPoints(DataInputStream input) throws IOException {
+        int size = input.readInt();
+        FloatArray points = new FloatArray(size);
+        for (int i = 0; i < size; ++i) {
+            points.add(input.readFloat());
+        }
+        return points;
+    }
+
+}
@@ -1,12 +1,14 @@
 package zendo.games.sandbox_gdx.utils;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.math.*;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.FloatArray;
 import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.Logger;
+import zendo.games.sandbox_gdx.dual_mesh.SweepHullTriangulator;
 
 import java.util.*;
 
@@ -35,7 +37,8 @@ while list A is not empty
 */
 public class ConcaveHull {
 
-    private static int edgeId = 0;
+    // Edge ids are handed out per hull, so separate hulls can be generated on separate threads
+    private int nextEdgeId = 0;
     public class Edge {
         private final FloatArray vertices;
 
@@ -44,7 +47,14 @@ public class ConcaveHull {
         int index2;
 
         Edge(int index1, int index2, FloatArray vertices) {
-            this.id = edgeId++;
+            this.id = nextEdgeId++;
+            this.vertices = vertices;
+            this.index1 = index1;
+            this.index2 = index2;
+        }
+
+        Edge(int id, int index1, int index2, FloatArray vertices) {
+            this.id = id;
             this.vertices = vertices;
             this.index1 = index1;
             this.index2 = index2;
@@ -81,16 +91,662 @@ public class ConcaveHull {
             return "Edge@" + id + "(" + index1 + ", " + index2 + ") length = " + length();
         }
     }
-    // Custom comparator for sorting edges by length
-    private Comparator<Edge> edgeLengthComparator = new Comparator<Edge>() {
+
+    /**
+     * Working set of edges waiting to be dug, a binary max-heap keyed by squared length
+     * Edges are kept as primitive index pairs with their squared length computed once on push,
+     * so popping the longest edge is O(log n) rather than re-sorting the whole list every step
+     */
+    private class EdgeHeap {
+        private int[] ids;
+        private int[] index1;
+        private int[] index2;
+        private float[] lengthSq;
+        private int size;
+
+        EdgeHeap(int capacity) {
+            capacity = Math.max(capacity, 1);
+            ids      = new int[capacity];
+            index1   = new int[capacity];
+            index2   = new int[capacity];
+            lengthSq = new float[capacity];
+        }
+
+        int size() { return size; }
+        boolean isEmpty() { return size == 0; }
+        void clear() { size = 0; }
+
+        /**
+         * @return the squared length of the longest edge, the heap must not be empty
+         */
+        float peekLengthSquared() { return lengthSq[0]; }
+
+        void push(Edge edge) {
+            final FloatArray vertices = edge.vertices;
+            final float dx = vertices.items[edge.index2 * 2]     - vertices.items[edge.index1 * 2];
+            final float dy = vertices.items[edge.index2 * 2 + 1] - vertices.items[edge.index1 * 2 + 1];
+            if (size == ids.length) {
+                final int capacity = size * 2;
+                ids      = Arrays.copyOf(ids, capacity);
+                index1   = Arrays.copyOf(index1, capacity);
+                index2   = Arrays.copyOf(index2, capacity);
+                lengthSq = Arrays.copyOf(lengthSq, capacity);
+            }
+            siftUp(size++, edge.id, edge.index1, edge.index2, dx * dx + dy * dy);
+        }
+
+        /**
+         * Remove the longest edge, the heap must not be empty
+         * @param vertices the vertices the edge indexes into
+         * @return the edge
+         */
+        Edge pop(FloatArray vertices) {
+            final Edge edge = new Edge(ids[0], index1[0], index2[0], vertices);
+            if (--size > 0) {
+                siftDown(0, ids[size], index1[size], index2[size], lengthSq[size]);
+            }
+            return edge;
+        }
+
+        private void siftUp(int i, int id, int i1, int i2, float key) {
+            while (i > 0) {
+                final int parent = (i - 1) >>> 1;
+                if (lengthSq[parent] >= key) break;
+                place(i, ids[parent], index1[parent], index2[parent], lengthSq[parent]);
+                i = parent;
+            }
+            place(i, id, i1, i2, key);
+        }
+
+        private void siftDown(int i, int id, int i1, int i2, float key) {
+            final int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && lengthSq[child + 1] > lengthSq[child]) {
+                    child++;
+                }
+                if (key >= lengthSq[child]) break;
+                place(i, ids[child], index1[child], index2[child], lengthSq[child]);
+                i = child;
+            }
+            place(i, id, i1, i2, key);
+        }
+
+        private void place(int i, int id, int i1, int i2, float key) {
+            ids[i] = id;
+            index1[i] = i1;
+            index2[i] = i2;
+            lengthSq[i] = key;
+        }
+    }
+
+    /**
+     * Uniform grid over the hull's bounds indexing the finished concave hull edges by the cells
+     * their bounding boxes overlap, so an intersection test only visits edges near the candidate
+     * Edges are kept in slots, each cell lists the slots of the edges overlapping it and a query
+     * stamps the slots it has seen so an edge spanning several cells is only reported once
+     */
+    private class SegmentGrid {
+        private static final int max_cells_per_axis = 256;
+
+        private float originX;
+        private float originY;
+        private float invCellSize;
+        private int cols;
+        private int rows;
+        private IntArray[] cells = new IntArray[0];
+
+        private Edge[] segments = new Edge[16];
+        private int[] stamps = new int[16];
+        private int numSlots;
+        private int stamp;
+
+        /**
+         * Remove every edge and cover a new area
+         * @param area the area to cover, edges outside it are clamped to the border cells
+         * @param cellSize the preferred cell size, grown if the area would need too many cells
+         */
+        void reset(Rectangle area, float cellSize) {
+            cellSize = Math.max(cellSize, Math.max(area.width, area.height) / max_cells_per_axis);
+            cellSize = Math.max(cellSize, Float.MIN_NORMAL);
+            originX = area.x;
+            originY = area.y;
+            invCellSize = 1f / cellSize;
+            cols = Math.max(1, (int) Math.ceil(area.width  * invCellSize));
+            rows = Math.max(1, (int) Math.ceil(area.height * invCellSize));
+            if (cells.length < cols * rows) {
+                cells = new IntArray[cols * rows];
+            }
+            for (int i = 0; i < cols * rows; ++i) {
+                if (cells[i] != null) cells[i].clear();
+            }
+            Arrays.fill(segments, 0, numSlots, null);
+            numSlots = 0;
+        }
+
+        void add(Edge edge) {
+            if (numSlots == segments.length) {
+                segments = Arrays.copyOf(segments, numSlots * 2);
+                stamps = Arrays.copyOf(stamps, numSlots * 2);
+            }
+            final int slot = numSlots++;
+            segments[slot] = edge;
+            stamps[slot] = stamp;
+
+            final int[] range = cellRange(edge);
+            for (int row = range[1]; row <= range[3]; ++row) {
+                for (int col = range[0]; col <= range[2]; ++col) {
+                    final int cell = row * cols + col;
+                    if (cells[cell] == null) cells[cell] = new IntArray(4);
+                    cells[cell].add(slot);
+                }
+            }
+        }
+
+        /**
+         * Collect the edges whose cells overlap the bounding box of an edge, each edge at most once
+         * @param edge the query edge
+         * @param out cleared and filled with the nearby edges
+         */
+        void query(Edge edge, Array<Edge> out) {
+            out.clear();
+            if (++stamp == 0) {
+                Arrays.fill(stamps, 0, numSlots, 0);
+                stamp = 1;
+            }
+            final int[] range = cellRange(edge);
+            for (int row = range[1]; row <= range[3]; ++row) {
+                for (int col = range[0]; col <= range[2]; ++col) {
+                    final IntArray cell = cells[row * cols + col];
+                    if (cell == null) continue;
+                    for (int i = 0; i < cell.size; ++i) {
+                        final int slot = cell.items[i];
+                        if (stamps[slot] == stamp) continue;
+                        stamps[slot] = stamp;
+                        out.add(segments[slot]);
+                    }
+                }
+            }
+        }
+
+        private final int[] range = new int[4];
+
+        /**
+         * @return the cells overlapped by the edge's bounding box as [minCol, minRow, maxCol, maxRow]
+         */
+        private int[] cellRange(Edge edge) {
+            final float[] items = edge.vertices.items;
+            final float ax = items[edge.index1 * 2], ay = items[edge.index1 * 2 + 1];
+            final float bx = items[edge.index2 * 2], by = items[edge.index2 * 2 + 1];
+            range[0] = col(Math.min(ax, bx));
+            range[1] = row(Math.min(ay, by));
+            range[2] = col(Math.max(ax, bx));
+            range[3] = row(Math.max(ay, by));
+            return range;
+        }
+
+        private int col(float x) { return MathUtils.clamp((int) Math.floor((x - originX) * invCellSize), 0, cols - 1); }
+        private int row(float y) { return MathUtils.clamp((int) Math.floor((y - originY) * invCellSize), 0, rows - 1); }
+    }
+
+    /**
+     * Hands each interior point to the working edge whose midpoint is nearest (the DE distance),
+     * so a popped edge only looks at the points it owns rather than every point against every edge
+     *
+     * Working edge midpoints live in a uniform grid for nearest midpoint searches, resized to about
+     * one midpoint per cell as the working set grows and shrinks. Each edge's points are a doubly
+     * linked list threaded through per point arrays, so moving a point between edges is O(1).
+     * A new edge claims the points around its midpoint that are now nearer to it, searching a fixed
+     * grid of the interior points ring by ring until a ring gives up no points, and an edge leaving
+     * the working set hands its points to the nearest remaining midpoints.
+     */
+    private class PointAssignment {
+        // Working edge midpoints by edge id, and the dense list of edges in the working set
+        private float[] midpoints = new float[0];
+        private int[] aliveIndex = new int[0];
+        private final IntArray alive = new IntArray();
+
+        // Uniform grid of midpoints, cells hold edge ids
+        private Rectangle area;
+        private float originX;
+        private float originY;
+        private float cellSize;
+        private float invCellSize;
+        private int cols;
+        private int rows;
+        private IntArray[] cells = new IntArray[0];
+
+        // Uniform grid of the interior points, fixed for the whole run,
+        // cell c holds pointCellItems[pointCellStart[c] .. pointCellStart[c+1])
+        private float pointInvCellSize;
+        private int pointCols;
+        private int pointRows;
+        private int[] pointCellStart = new int[0];
+        private int[] pointCellItems = new int[0];
+
+        // Points owned by each edge, -1 terminated lists through next/prev, owner is -1 if unassigned
+        private int[] head = new int[0];
+        private int[] next = new int[0];
+        private int[] prev = new int[0];
+        private int[] owner = new int[0];
+
+        /**
+         * Start over with no working edges
+         * @param area the area the points and edges are in
+         * @param points the interior points, none are assigned until assign() is called
+         * @param numPoints the total number of vertices
+         */
+        void reset(Rectangle area, IntArray points, int numPoints) {
+            this.area = area;
+            alive.clear();
+            if (owner.length < numPoints) {
+                next  = new int[numPoints];
+                prev  = new int[numPoints];
+                owner = new int[numPoints];
+            }
+            Arrays.fill(owner, 0, numPoints, -1);
+            rebuild();
+            buildPointGrid(points);
+        }
+
+        void addEdge(Edge edge) {
+            final int id = edge.id;
+            if (id >= head.length) {
+                final int capacity = Math.max(id + 1, head.length * 2);
+                final int oldCapacity = head.length;
+                head = Arrays.copyOf(head, capacity);
+                aliveIndex = Arrays.copyOf(aliveIndex, capacity);
+                midpoints = Arrays.copyOf(midpoints, 2 * capacity);
+                Arrays.fill(head, oldCapacity, capacity, -1);
+            }
+            final float[] items = edge.vertices.items;
+            midpoints[2 * id]     = (items[edge.index1 * 2]     + items[edge.index2 * 2])     / 2f;
+            midpoints[2 * id + 1] = (items[edge.index1 * 2 + 1] + items[edge.index2 * 2 + 1]) / 2f;
+            head[id] = -1;
+            aliveIndex[id] = alive.size;
+            alive.add(id);
+
+            if (alive.size > 4 * cols * rows) {
+                rebuild();
+            } else {
+                cell(midpoints[2 * id], midpoints[2 * id + 1]).add(id);
+            }
+            claimNearbyPoints(id);
+        }
+
+        /**
+         * Take an edge out of the working set and hand its points to the nearest remaining edges
+         */
+        void removeEdge(Edge edge) {
+            final int id = edge.id;
+            final int last = alive.pop();
+            if (last != id) {
+                alive.set(aliveIndex[id], last);
+                aliveIndex[last] = aliveIndex[id];
+            }
+
+            if (4 * alive.size < cols * rows && cols * rows > 1) {
+                rebuild();
+            } else {
+                cell(midpoints[2 * id], midpoints[2 * id + 1]).removeValue(id);
+            }
+
+            int point = head[id];
+            head[id] = -1;
+            while (point != -1) {
+                final int following = next[point];
+                owner[point] = -1;
+                assign(point);
+                point = following;
+            }
+        }
+
+        /**
+         * Give a point to the working edge with the nearest midpoint
+         */
+        void assign(int point) {
+            final int nearest = nearestEdge(vertices.items[point * 2], vertices.items[point * 2 + 1]);
+            if (nearest != -1) {
+                link(point, nearest);
+            }
+        }
+
+        /**
+         * Remove a point from its edge's list, eg. once it is on the hull
+         */
+        void unassign(int point) {
+            final int id = owner[point];
+            if (id == -1) return;
+            if (prev[point] != -1) next[prev[point]] = next[point];
+            else                   head[id]           = next[point];
+            if (next[point] != -1) prev[next[point]] = prev[point];
+            owner[point] = -1;
+        }
+
+        /**
+         * @param edge a working edge
+         * @param out the points owned by the edge are added to this array
+         */
+        void points(Edge edge, IntArray out) {
+            for (int point = head[edge.id]; point != -1; point = next[point]) {
+                out.add(point);
+            }
+        }
+
+        private void link(int point, int id) {
+            owner[point] = id;
+            prev[point] = -1;
+            next[point] = head[id];
+            if (head[id] != -1) prev[head[id]] = point;
+            head[id] = point;
+        }
+
+        /**
+         * Take the assigned points that are nearer to a new edge's midpoint than to their current edge
+         * Every such point lies in the new midpoint's Voronoi cell, so the cell's radius bounds the search
+         */
+        private void claimNearbyPoints(int id) {
+            final float mx = midpoints[2 * id];
+            final float my = midpoints[2 * id + 1];
+            // pad the radius so rounding in the clipping can't cut off a point, the test below is exact
+            final float radius = (float) Math.sqrt(voronoiRadiusSquared(id)) * 1.001f;
+            final int minCol = pointCol(mx - radius), maxCol = pointCol(mx + radius);
+            final int minRow = pointRow(my - radius), maxRow = pointRow(my + radius);
+            for (int r = minRow; r <= maxRow; ++r) {
+                for (int c = minCol; c <= maxCol; ++c) {
+                    claimPoints(r * pointCols + c, id, mx, my);
+                }
+            }
+        }
+
+        private void claimPoints(int cellIndex, int id, float mx, float my) {
+            for (int i = pointCellStart[cellIndex]; i < pointCellStart[cellIndex + 1]; ++i) {
+                final int point = pointCellItems[i];
+                final int current = owner[point];
+                if (current == -1 || current == id) continue;
+                final float px = vertices.items[point * 2];
+                final float py = vertices.items[point * 2 + 1];
+                final float dx = mx - px, dy = my - py;
+                final float cx = midpoints[2 * current] - px, cy = midpoints[2 * current + 1] - py;
+                if (dx * dx + dy * dy < cx * cx + cy * cy) {
+                    unassign(point);
+                    link(point, id);
+                }
+            }
+        }
+
+        /**
+         * Clip the area down to the Voronoi cell of an edge's midpoint among the working edge midpoints,
+         * visiting midpoints ring by ring until none are near enough to cut the cell any further
+         * @return the squared distance from the midpoint to the farthest corner of its cell
+         */
+        private float voronoiRadiusSquared(int id) {
+            final float mx = midpoints[2 * id];
+            final float my = midpoints[2 * id + 1];
+            // the polygon is kept relative to the midpoint
+            numClip = 4;
+            clipX[0] = area.x - mx;              clipY[0] = area.y - my;
+            clipX[1] = area.x + area.width - mx; clipY[1] = area.y - my;
+            clipX[2] = area.x + area.width - mx; clipY[2] = area.y + area.height - my;
+            clipX[3] = area.x - mx;              clipY[3] = area.y + area.height - my;
+            float radiusSq = clipRadiusSquared();
+
+            final int col = col(mx);
+            final int row = row(my);
+            final int maxRing = Math.max(cols, rows);
+            for (int ring = 0; ring <= maxRing; ++ring) {
+                // a midpoint more than twice the cell's radius away has its bisector outside the cell
+                final float reach = (ring - 1) * cellSize;
+                if (ring > 0 && reach * reach > 4f * radiusSq) break;
+                final int minRow = Math.max(row - ring, 0), maxRow = Math.min(row + ring, rows - 1);
+                final int minCol = Math.max(col - ring, 0), maxCol = Math.min(col + ring, cols - 1);
+                for (int r = minRow; r <= maxRow; ++r) {
+                    if (r == row - ring || r == row + ring) {
+                        for (int c = minCol; c <= maxCol; ++c) {
+                            clip(r * cols + c, id, mx, my);
+                        }
+                    } else {
+                        if (col - ring >= 0)   clip(r * cols + col - ring, id, mx, my);
+                        if (col + ring < cols) clip(r * cols + col + ring, id, mx, my);
+                    }
+                }
+                radiusSq = clipRadiusSquared();
+            }
+            return radiusSq;
+        }
+
+        // Scratch polygon for voronoiRadiusSquared()
+        private float[] clipX = new float[8];
+        private float[] clipY = new float[8];
+        private float[] clipOutX = new float[8];
+        private float[] clipOutY = new float[8];
+        private int numClip;
+
+        /**
+         * Cut the polygon by the bisector between the midpoint and each other midpoint in a cell
+         */
+        private void clip(int cellIndex, int id, float mx, float my) {
+            final IntArray cell = cells[cellIndex];
+            for (int i = 0; i < cell.size; ++i) {
+                final int other = cell.items[i];
+                if (other == id) continue;
+                final float nx = midpoints[2 * other] - mx;
+                final float ny = midpoints[2 * other + 1] - my;
+                // keep the side where p . n <= |n|^2 / 2, a coincident midpoint cuts nothing
+                final float limit = (nx * nx + ny * ny) / 2f;
+                if (limit == 0f) continue;
+
+                if (clipOutX.length < numClip + 1) {
+                    clipOutX = new float[2 * (numClip + 1)];
+                    clipOutY = new float[2 * (numClip + 1)];
+                }
+                int numOut = 0;
+                for (int j = 0; j < numClip; ++j) {
+                    final int k = (j + 1) % numClip;
+                    final float dj = clipX[j] * nx + clipY[j] * ny - limit;
+                    final float dk = clipX[k] * nx + clipY[k] * ny - limit;
+                    if (dj <= 0f) {
+                        clipOutX[numOut] = clipX[j];
+                        clipOutY[numOut] = clipY[j];
+                        numOut++;
+                    }
+                    if ((dj < 0f && dk > 0f) || (dj > 0f && dk < 0f)) {
+                        final float t = dj / (dj - dk);
+                        clipOutX[numOut] = clipX[j] + t * (clipX[k] - clipX[j]);
+                        clipOutY[numOut] = clipY[j] + t * (clipY[k] - clipY[j]);
+                        numOut++;
+                    }
+                }
+                final float[] swapX = clipX; clipX = clipOutX; clipOutX = swapX;
+                final float[] swapY = clipY; clipY = clipOutY; clipOutY = swapY;
+                numClip = numOut;
+            }
+        }
+
+        private float clipRadiusSquared() {
+            float radiusSq = 0f;
+            for (int i = 0; i < numClip; ++i) {
+                radiusSq = Math.max(radiusSq, clipX[i] * clipX[i] + clipY[i] * clipY[i]);
+            }
+            return radiusSq;
+        }
+
+        /**
+         * Search rings of cells outward from the point's cell until no unvisited cell can be nearer
+         */
+        private int nearestEdge(float px, float py) {
+            if (alive.size == 0) return -1;
+            final int col = col(px);
+            final int row = row(py);
+            final int maxRing = Math.max(cols, rows);
+            nearest = -1;
+            nearestDistSq = Float.POSITIVE_INFINITY;
+            for (int ring = 0; ring <= maxRing; ++ring) {
+                // cells in this ring are at least ring - 1 cells away from any point inside the center cell
+                final float reach = (ring - 1) * cellSize;
+                if (nearest != -1 && ring > 0 && nearestDistSq <= reach * reach) break;
+                final int minRow = Math.max(row - ring, 0), maxRow = Math.min(row + ring, rows - 1);
+                final int minCol = Math.max(col - ring, 0), maxCol = Math.min(col + ring, cols - 1);
+                for (int r = minRow; r <= maxRow; ++r) {
+                    if (r == row - ring || r == row + ring) {
+                        for (int c = minCol; c <= maxCol; ++c) {
+                            visit(r * cols + c, px, py);
+                        }
+                    } else {
+                        if (col - ring >= 0)   visit(r * cols + col - ring, px, py);
+                        if (col + ring < cols) visit(r * cols + col + ring, px, py);
+                    }
+                }
+            }
+            return nearest;
+        }
+
+        // Search state for nearestEdge()
+        private int nearest;
+        private float nearestDistSq;
+
+        private void visit(int cellIndex, float px, float py) {
+            final IntArray cell = cells[cellIndex];
+            for (int i = 0; i < cell.size; ++i) {
+                final int id = cell.items[i];
+                final float dx = midpoints[2 * id] - px;
+                final float dy = midpoints[2 * id + 1] - py;
+                final float distSq = dx * dx + dy * dy;
+                if (distSq < nearestDistSq) {
+                    nearestDistSq = distSq;
+                    nearest = id;
+                }
+            }
+        }
+
+        /**
+         * Size the midpoint grid to about one midpoint per cell and re-insert the working edges
+         */
+        private void rebuild() {
+            cellSize = cellSizeFor(Math.max(alive.size, 1));
+            invCellSize = 1f / cellSize;
+            originX = area.x;
+            originY = area.y;
+            cols = Math.max(1, (int) Math.ceil(area.width  * invCellSize));
+            rows = Math.max(1, (int) Math.ceil(area.height * invCellSize));
+            if (cells.length < cols * rows) {
+                final int oldLength = cells.length;
+                cells = Arrays.copyOf(cells, cols * rows);
+                for (int i = oldLength; i < cells.length; ++i) {
+                    cells[i] = new IntArray(4);
+                }
+            }
+            for (int i = 0; i < cols * rows; ++i) {
+                cells[i].clear();
+            }
+            for (int i = 0; i < alive.size; ++i) {
+                final int id = alive.get(i);
+                cell(midpoints[2 * id], midpoints[2 * id + 1]).add(id);
+            }
+        }
+
+        /**
+         * Bucket the interior points into a grid of about two points per cell, a counting sort by cell
+         */
+        private void buildPointGrid(IntArray points) {
+            pointInvCellSize = 1f / cellSizeFor(Math.max(points.size / 2, 1));
+            pointCols = Math.max(1, (int) Math.ceil(area.width  * pointInvCellSize));
+            pointRows = Math.max(1, (int) Math.ceil(area.height * pointInvCellSize));
+            final int numCells = pointCols * pointRows;
+            if (pointCellStart.length < numCells + 2) {
+                pointCellStart = new int[numCells + 2];
+            }
+            if (pointCellItems.length < points.size) {
+                pointCellItems = new int[points.size];
+            }
+            Arrays.fill(pointCellStart, 0, numCells + 2, 0);
+            for (int i = 0; i < points.size; ++i) {
+                pointCellStart[pointCell(points.get(i)) + 2]++;
+            }
+            for (int c = 2; c <= numCells + 1; ++c) {
+                pointCellStart[c] += pointCellStart[c - 1];
+            }
+            // pointCellStart[c + 1] is the insertion cursor for c, and ends up as the start of c + 1
+            for (int i = 0; i < points.size; ++i) {
+                final int point = points.get(i);
+                pointCellItems[pointCellStart[pointCell(point) + 1]++] = point;
+            }
+        }
+
+        private float cellSizeFor(int count) {
+            final float w = area.width;
+            final float h = area.height;
+            if (w * h > 0f) return (float) Math.sqrt(w * h / count);
+            return Math.max(Math.max(w, h) / count, Float.MIN_NORMAL);
+        }
+
+        private IntArray cell(float x, float y) { return cells[row(y) * cols + col(x)]; }
+        private int col(float x) { return MathUtils.clamp((int) Math.floor((x - originX) * invCellSize), 0, cols - 1); }
+        private int row(float y) { return MathUtils.clamp((int) Math.floor((y - originY) * invCellSize), 0, rows - 1); }
+
+        private int pointCell(int point) { return pointRow(vertices.items[point * 2 + 1]) * pointCols + pointCol(vertices.items[point * 2]); }
+        private int pointCol(float x) { return MathUtils.clamp((int) Math.floor((x - area.x) * pointInvCellSize), 0, pointCols - 1); }
+        private int pointRow(float y) { return MathUtils.clamp((int) Math.floor((y - area.y) * pointInvCellSize), 0, pointRows - 1); }
+    }
+
+    /**
+     * Counters from the last generateConcaveHull() call, always recorded since they cost next to nothing
+     */
+    public static class Stats {
+        public int edgesProcessed;          // edges popped from the working set
+        public int candidatePoints;         // interior points considered across all popped edges
+        public int digsAccepted;            // edges replaced by two edges through an interior point
+        public int intersectionsRejected;   // digs abandoned because a new edge crossed the hull
+
+        void reset() {
+            edgesProcessed = 0;
+            candidatePoints = 0;
+            digsAccepted = 0;
+            intersectionsRejected = 0;
+        }
+
         @Override
-        public int compare(Edge edge1, Edge edge2) {
-            return Float.compare(edge2.length(), edge1.length());
+        public String toString() {
+            return "edges processed = " + edgesProcessed
+                 + ", candidate points = " + candidatePoints
+                 + ", digs accepted = " + digsAccepted
+                 + ", intersections rejected = " + intersectionsRejected;
         }
-    };
+    }
+
+    /**
+     * Algorithms for shrinking the convex hull into a concave hull, edges longer than d are broken up by both
+     */
+    public enum Engine {
+        /** Dig into the nearest interior point with the smallest max angle, heuristic */
+        DIG,
+        /** Remove boundary triangles of the Delaunay triangulation longest side first, O(n log n) */
+        CHI_SHAPE
+    }
 
     private LinkedList<Edge> convexHullEdges;
     private LinkedList<Edge> concaveHullEdges;
+    private EdgeHeap edges;
+    private SegmentGrid concaveHullGrid;
+    private PointAssignment pointAssignment;
+    private final Array<Edge> nearbyEdges = new Array<Edge>();
+
+    // Chi-shape engine scratch, kept between calls
+    private final SweepHullTriangulator triangulator = new SweepHullTriangulator();
+    private final IntFloatHeap sideHeap = new IntFloatHeap(0);
+    private int[] s_start_r = new int[0];
+    private int[] s_opposite_s = new int[0];
+    private int[] r_boundary_s = new int[0];
+    private boolean[] r_boundary = new boolean[0];
+    private boolean[] t_removed = new boolean[0];
+
+    // Dig engine interior point bookkeeping, convex hull membership and the slot of each point in interiorPoints
+    private boolean[] r_onConvexHull = new boolean[0];
+    private int[] r_interiorPosition = new int[0];
+
+    // Polygon ordering scratch, the two hull neighbors of each point
+    private int[] r_neighbors = new int[0];
+    private final Vector2 intersection = new Vector2();
 
     private FloatArray convexHullVertices;
     private FloatArray vertices;
@@ -101,23 +757,59 @@ public class ConcaveHull {
 
     public Rectangle bounds;
 
+    // Per edge traces are logged at DEBUG, they build strings for every edge and point so they are
+    // only built when the level is raised with setLogLevel() (Gdx.app's log level must allow debug too)
+    private final Logger logger = new Logger("ConcaveHull", Logger.INFO);
+    private final Stats stats = new Stats();
+
     private static final float d = 15f;
     private static final float maxInteriorAngleThreshold = 100f;
 
-    public ConcaveHull(List<Vector2> pointsList) {
+    /**
+     * An empty hull, call generateConcaveHull() to fill it
+     */
+    public ConcaveHull() {
         convexHullEdges = new LinkedList<Edge>();
         concaveHullEdges = new LinkedList<Edge>();
+        edges = new EdgeHeap(64);
+        concaveHullGrid = new SegmentGrid();
+        pointAssignment = new PointAssignment();
         convexHullVertices = new FloatArray();
         vertices = new FloatArray();
         convexHullIndices = new IntArray();
         concaveHullIndices = new IntArray();
         interiorPoints = new IntArray();
         bounds = new Rectangle();
+    }
 
+    public ConcaveHull(List<Vector2> pointsList) {
+        this();
         generateConcaveHull(pointsList);
     }
 
     public void generateConcaveHull(List<Vector2> pointsList) {
+        generateConcaveHull(pointsList, Engine.DIG);
+    }
+
+    /**
+     * Rebuild the hulls around a new set of points
+     * @param pointsList the points
+     * @param engine the algorithm that shrinks the convex hull into the concave hull
+     */
+    public void generateConcaveHull(List<Vector2> pointsList, Engine engine) {
+        final FloatArray points = new FloatArray(pointsList.size() * 2);
+        for (Vector2 point : pointsList) {
+            points.addAll(point.x, point.y);
+        }
+        generateConcaveHull(points, engine);
+    }
+
+    /**
+     * Rebuild the hulls around a new set of points, without boxing each point in a Vector2
+     * @param points interleaved [x, y, ...] point coordinates, copied
+     * @param engine the algorithm that shrinks the convex hull into the concave hull
+     */
+    public void generateConcaveHull(FloatArray points, Engine engine) {
         // Clear buffers
         convexHullEdges.clear();
         concaveHullEdges.clear();
@@ -131,13 +823,11 @@ public class ConcaveHull {
         concaveHullIndices.shrink();
         interiorPoints.clear();
         interiorPoints.shrink();
-        edgeId = 0;
+        nextEdgeId = 0;
+        stats.reset();
 
-        // Copy pointsList to FloatArray for convex hull generation
-        vertices = new FloatArray(pointsList.size() * 2);
-        for (Vector2 point : pointsList) {
-            vertices.addAll(point.x, point.y);
-        }
+        // Copy points for convex hull generation
+        vertices = new FloatArray(points);
         vertices.shrink();
 
         // Compute convex hull vertices / indices / edges
@@ -149,50 +839,95 @@ public class ConcaveHull {
             convexHullEdges.add(new Edge(convexHullIndices.get(i), convexHullIndices.get(i + 1), vertices));
         }
 
-        // Collect interior points from convex hull
-        interiorPoints = new IntArray();
-        for (int i = 0; i < vertices.size; i += 2) {
-            float vx = vertices.get(i);
-            float vy = vertices.get(i + 1);
-            boolean isPointInConvexHull = false;
-            for (int j = 0; j < convexHullVertices.size; j += 2) {
-                float cvx = convexHullVertices.get(j);
-                float cvy = convexHullVertices.get(j + 1);
-                if (vx == cvx && vy == cvy) {
-                    isPointInConvexHull = true;
-                }
-            }
-            if (!isPointInConvexHull) {
-                interiorPoints.add(i / 2);
+        switch (engine) {
+            case DIG:       digConcaveHull();       break;
+            case CHI_SHAPE: chiShapeConcaveHull();  break;
+        }
+
+        if (logger.getLevel() >= Logger.INFO) {
+            logger.info("Completed with...\n"
+                    + "\t" + convexHullEdges.size() + " convex edges\n"
+                    + "\t" + concaveHullEdges.size() + " concave edges\n"
+                    + "\t" + interiorPoints.size + " remaining interior points\n"
+                    + "\t" + stats);
+        }
+
+
+        concaveHullIndices = new IntArray();
+        for (Edge edge : concaveHullEdges) {
+            if (!concaveHullIndices.contains(edge.index1)) concaveHullIndices.add(edge.index1);
+            if (!concaveHullIndices.contains(edge.index2)) concaveHullIndices.add(edge.index2);
+        }
+
+        getMinRect();
+    }
+
+    /**
+     * Dig engine, starting from the convex hull repeatedly take the longest edge and, if it is longer than d,
+     * replace it with two edges through the nearby interior point that makes the smallest max angle with it
+     */
+    private void digConcaveHull() {
+        // Index the concave hull edges over the hull's bounds as they are added,
+        // cells a couple of dig lengths wide hold only a few of the short dug edges
+        getMinRect();
+        concaveHullGrid.reset(bounds, 2f * d);
+
+        // Collect interior points from convex hull, by index so duplicates of a hull point count as interior
+        final int numPoints = vertices.size / 2;
+        if (r_onConvexHull.length < numPoints) {
+            r_onConvexHull = new boolean[numPoints];
+            r_interiorPosition = new int[numPoints];
+        }
+        Arrays.fill(r_onConvexHull, 0, numPoints, false);
+        for (int i = 0; i < convexHullIndices.size; ++i) {
+            r_onConvexHull[convexHullIndices.get(i)] = true;
+        }
+        interiorPoints = new IntArray(numPoints);
+        for (int i = 0; i < numPoints; ++i) {
+            if (r_onConvexHull[i]) {
+                r_interiorPosition[i] = -1;
+            } else {
+                r_interiorPosition[i] = interiorPoints.size;
+                interiorPoints.add(i);
             }
         }
-        interiorPoints.shrink();
+
+        // Hand each interior point to the convex hull edge with the nearest midpoint
+        pointAssignment.reset(bounds, interiorPoints, vertices.size / 2);
+        for (Edge edge : convexHullEdges) {
+            pointAssignment.addEdge(edge);
+        }
+        for (int i = 0; i < interiorPoints.size; ++i) {
+            pointAssignment.assign(interiorPoints.get(i));
+        }
 
         // Process edges
         concaveHullEdges = new LinkedList<Edge>();
-        LinkedList<Edge> edges = new LinkedList<Edge>(convexHullEdges);
+        edges.clear();
+        for (Edge edge : convexHullEdges) {
+            edges.push(edge);
+        }
         while (!edges.isEmpty()) {
-            // Sort working edge list by edge length
-            Collections.sort(edges, edgeLengthComparator);
-            Edge edge = edges.pop();
-            Gdx.app.log("ProcessingEdges", "Current edge: " + edge.toString());
+            // Take the longest edge from the working set
+            float lenSq = edges.peekLengthSquared();
+            Edge edge = edges.pop(vertices);
+            stats.edgesProcessed++;
+            if (tracing()) logger.debug("Current edge: " + edge.toString());
 
             // TODO: Calculate local max distance d for edges
             // For now, just use a set standard max length
 
             Edge edge1, edge2;
             boolean didAddNewEdges = false;
-            float len = edge.length();
-            if (len > d) {
+            if (lenSq > d * d) {
                 // Fetch the vertices for edge
                 final float e1_x = edge.vertices.get(edge.index1 * 2);
                 final float e1_y = edge.vertices.get(edge.index1 * 2 + 1);
                 final float e2_x = edge.vertices.get(edge.index2 * 2);
                 final float e2_y = edge.vertices.get(edge.index2 * 2 + 1);
 
-                // Collect inner points that are closer to current edge than other edges
-                // TODO: test against working edge list (edges) or current concave edge list?
-                IntArray nearestInnerPoints = findInnerPointsNearestToEdge(edge, edges, interiorPoints);
+                // Collect inner points that are closer to current edge than other working edges
+                IntArray nearestInnerPoints = findInnerPointsNearestToEdge(edge);
 
                 // TODO: could just sort the nearestInnerPoints array now that they are all local to edge if dist is important
                 // Find the point p : interiorPoints with the smallest max angle 'a'
@@ -225,7 +960,7 @@ public class ConcaveHull {
                         minAngleInnerPointsIndex = innerPointIndex;
                     }
                 }
-                Gdx.app.log("ProcessingEdges", "\tmaxInteriorAngle: " + maxInteriorAngle);
+                if (tracing()) logger.debug("\tmaxInteriorAngle: " + maxInteriorAngle);
 
                 // if minAngle is small enough...
                 // TODO: determine how to choose this threshold
@@ -237,14 +972,20 @@ public class ConcaveHull {
                     // NOTE: reverse order of indices for edge2?
 
                     // If edge1 and edge2 don't intersect any other edge...
-                    if (!doEdgesIntersectOtherEdges(edge1, edge2, concaveHullEdges)) {
+                    if (!doEdgesIntersectOtherEdges(edge1, edge2, concaveHullGrid)) {
                         // add edge1, edge2 to edges
-                        edges.add(edge1);
-                        edges.add(edge2);
+                        edges.push(edge1);
+                        edges.push(edge2);
                         // remove point p from interiorPoints
-                        interiorPoints.removeValue(minAngleInnerPointsIndex);
+                        removeInteriorPoint(minAngleInnerPointsIndex);
+                        pointAssignment.unassign(minAngleInnerPointsIndex);
+                        pointAssignment.addEdge(edge1);
+                        pointAssignment.addEdge(edge2);
                         didAddNewEdges = true;
-                        Gdx.app.log("ProcessingEdges", "\tDIG: Adding edges: " + edge1.toString() + ", " + edge2.toString() + "\n\n");
+                        stats.digsAccepted++;
+                        if (tracing()) logger.debug("\tDIG: Adding edges: " + edge1.toString() + ", " + edge2.toString() + "\n\n");
+                    } else {
+                        stats.intersectionsRejected++;
                     }
                 }
             }
@@ -253,63 +994,148 @@ public class ConcaveHull {
             if (!didAddNewEdges) {
                 // add edge to list concaveHullEdges
                 concaveHullEdges.add(edge);
-                Gdx.app.log("ProcessingEdges", "\tNO DIG: Adding edge: " + edge.toString() + "\n\n");
+                concaveHullGrid.add(edge);
+                if (tracing()) logger.debug("\tNO DIG: Adding edge: " + edge.toString() + "\n\n");
             }
+
+            // edge has left the working set either way, its remaining points go to the nearest working edges
+            pointAssignment.removeEdge(edge);
         }
-        Gdx.app.log("ConcaveHull", "Completed with...\n"
-                + "\t" + convexHullEdges.size() + " convex edges\n"
-                + "\t" + concaveHullEdges.size() + " concave edges\n"
-                + "\t" + interiorPoints.size + " remaining interior points");
+    }
 
+    /**
+     * Remove a point from interiorPoints in O(1), the last interior point takes its slot
+     * @param point the index of a point in interiorPoints
+     */
+    private void removeInteriorPoint(int point) {
+        final int position = r_interiorPosition[point];
+        if (position == -1) return;
+        final int last = interiorPoints.pop();
+        if (last != point) {
+            interiorPoints.set(position, last);
+            r_interiorPosition[last] = position;
+        }
+        r_interiorPosition[point] = -1;
+    }
 
-        concaveHullIndices = new IntArray();
-        for (Edge edge : concaveHullEdges) {
-            if (!concaveHullIndices.contains(edge.index1)) concaveHullIndices.add(edge.index1);
-            if (!concaveHullIndices.contains(edge.index2)) concaveHullIndices.add(edge.index2);
+    /**
+     * Chi-shape engine (Duckham et al. 2008), carve the Delaunay triangulation of the points from the outside in
+     * The longest boundary side longer than d has its triangle removed, unless the triangle's third point is already
+     * on the boundary, which would pinch the boundary into two polygons. Every side is queued at most once and
+     * lengths never change, so the whole carve is O(n log n) on top of the triangulation.
+     */
+    private void chiShapeConcaveHull() {
+        final int numPoints = vertices.size / 2;
+        final int maxSides = SweepHullTriangulator.maxSides(numPoints);
+        if (s_start_r.length < maxSides) {
+            s_start_r = new int[maxSides];
+            s_opposite_s = new int[maxSides];
         }
+        final int numSides = triangulator.triangulate(vertices.items, numPoints, s_start_r, s_opposite_s);
 
-        getMinRect();
+        concaveHullEdges = new LinkedList<Edge>();
+        interiorPoints = new IntArray();
+        if (numSides == 0) {
+            // all points are collinear, there is nothing to carve
+            for (Edge edge : convexHullEdges) {
+                concaveHullEdges.add(new Edge(edge));
+            }
+            return;
+        }
+
+        if (r_boundary.length < numPoints) {
+            r_boundary = new boolean[numPoints];
+            r_boundary_s = new int[numPoints];
+        }
+        if (t_removed.length < numSides / 3) {
+            t_removed = new boolean[numSides / 3];
+        }
+        Arrays.fill(r_boundary, 0, numPoints, false);
+        Arrays.fill(t_removed, 0, numSides / 3, false);
+        sideHeap.ensureCapacity(numSides);
+        sideHeap.clear();
+
+        // Start from the convex hull, the sides without an opposite
+        for (int s = 0; s < numSides; ++s) {
+            if (s_opposite_s[s] != -1) continue;
+            r_boundary[s_start_r[s]] = true;
+            pushBoundarySide(s);
+        }
+
+        while (!sideHeap.isEmpty()) {
+            final int s = sideHeap.pop();
+            stats.edgesProcessed++;
+            final int s_next = (s % 3 == 2) ? s - 2 : s + 1;
+            final int s_prev = (s % 3 == 0) ? s + 2 : s - 1;
+            final int r = s_start_r[s_prev];
+            if (r_boundary[r]) {
+                if (tracing()) logger.debug("\tKEEP: side " + s + " (" + s_start_r[s] + ", " + s_start_r[s_next] + "), point " + r + " is on the boundary");
+                continue;
+            }
+
+            // The triangle's other two sides were interior, the sides across them join the boundary
+            t_removed[s / 3] = true;
+            r_boundary[r] = true;
+            stats.digsAccepted++;
+            if (tracing()) logger.debug("\tCARVE: side " + s + " (" + s_start_r[s] + ", " + s_start_r[s_next] + ") to point " + r);
+            pushBoundarySide(s_opposite_s[s_next]);
+            pushBoundarySide(s_opposite_s[s_prev]);
+        }
+
+        // Each boundary point starts exactly one boundary side, chain them into the hull
+        int first = -1;
+        for (int s = 0; s < numSides; ++s) {
+            if (t_removed[s / 3]) continue;
+            final int opposite = s_opposite_s[s];
+            if (opposite == -1 || t_removed[opposite / 3]) {
+                r_boundary_s[s_start_r[s]] = s;
+                first = s;
+            }
+        }
+        int s = first;
+        do {
+            final int s_next = (s % 3 == 2) ? s - 2 : s + 1;
+            concaveHullEdges.add(new Edge(s_start_r[s], s_start_r[s_next], vertices));
+            s = r_boundary_s[s_start_r[s_next]];
+        } while (s != first && concaveHullEdges.size() <= numPoints);
+
+        for (int i = 0; i < numPoints; ++i) {
+            if (!r_boundary[i]) {
+                interiorPoints.add(i);
+            }
+        }
+    }
+
+    /**
+     * Queue a side that has just joined the boundary if it is long enough to carve
+     */
+    private void pushBoundarySide(int s) {
+        final int s_next = (s % 3 == 2) ? s - 2 : s + 1;
+        final int a = s_start_r[s];
+        final int b = s_start_r[s_next];
+        final float dx = vertices.items[b * 2]     - vertices.items[a * 2];
+        final float dy = vertices.items[b * 2 + 1] - vertices.items[a * 2 + 1];
+        final float lenSq = dx * dx + dy * dy;
+        if (lenSq > d * d) {
+            // the heap pops the lowest key first
+            sideHeap.push(s, -lenSq);
+        }
     }
 
     /**
-     * Return a list of point indices from pointIndices that are closer to the specified 'edge'
-     * than to any other edges in the specified list 'edges'
-     * @param edge the edge to find closest points to
-     * @param edges the other edges to check distance against
-     * @param pointIndices the list of indices of points to check
-     * @return a list of point indices that are closer to 'edge' than any other edge in 'edges'
+     * Return a list of interior point indices that are closer to the specified 'edge'
+     * than to any other edge in the working set, as tracked by the point assignment
+     * @param edge the edge to find closest points to, still in the point assignment
+     * @return a list of point indices that are closer to 'edge' than any other working edge
      */
-    private IntArray findInnerPointsNearestToEdge(Edge edge, LinkedList<Edge> edges, IntArray pointIndices) {
+    private IntArray findInnerPointsNearestToEdge(Edge edge) {
         final IntArray nearestInnerPoints = new IntArray();
-        final FloatArray pointVertices = edge.vertices;
-
-        for (int i = 0; i < pointIndices.size; ++i) {
-            int pointIndex = pointIndices.get(i);
-            float px = pointVertices.get(pointIndex * 2);
-            float py = pointVertices.get(pointIndex * 2 + 1);
-            float e1_x = edge.vertices.get(edge.index1 * 2);
-            float e1_y = edge.vertices.get(edge.index1 * 2 + 1);
-            float e2_x = edge.vertices.get(edge.index2 * 2);
-            float e2_y = edge.vertices.get(edge.index2 * 2 + 1);
-            float currentEdgeDist = DE(px, py, e1_x, e1_y, e2_x, e2_y);
-
-            boolean pointIsClosestToCurrentEdge = true;
-            for (Edge otherEdge : edges) {
-                if (edge == otherEdge) continue;
-                float oe1_x = otherEdge.vertices.get(otherEdge.index1 * 2);
-                float oe1_y = otherEdge.vertices.get(otherEdge.index1 * 2 + 1);
-                float oe2_x = otherEdge.vertices.get(otherEdge.index2 * 2);
-                float oe2_y = otherEdge.vertices.get(otherEdge.index2 * 2 + 1);
-                float otherEdgeDist = DE(px, py, oe1_x, oe1_y, oe2_x, oe2_y);
-                if (otherEdgeDist < currentEdgeDist) {
-                    pointIsClosestToCurrentEdge = false;
-                    break;
-                }
-            }
+        pointAssignment.points(edge, nearestInnerPoints);
+        stats.candidatePoints += nearestInnerPoints.size;
 
-            if (pointIsClosestToCurrentEdge) {
-                nearestInnerPoints.add(pointIndex);
-                Gdx.app.log("ProcessingEdges", "\t\tInner point " + pointIndex + " is closer to edge: " + edge.toString() + " than other edges");
+        if (tracing()) {
+            for (int i = 0; i < nearestInnerPoints.size; ++i) {
+                logger.debug("\t\tInner point " + nearestInnerPoints.get(i) + " is closer to edge: " + edge.toString() + " than other edges");
             }
         }
 
@@ -318,54 +1144,109 @@ public class ConcaveHull {
     }
 
     /**
-     * Check whether the specified edges (edge1, edge2) intersect any edges in the supplied list
+     * Check whether the specified edges (edge1, edge2) intersect any edges in the supplied grid
      * NOTE: this ignores endpoint-only intersections
      * @param edge1 the first edge to check
      * @param edge2 the second edge to check
-     * @param edges the edges to check against
+     * @param grid the indexed edges to check against
      * @return true if edge1 or edge2 intersect other edges, false otherwise
      */
-    private boolean doEdgesIntersectOtherEdges(Edge edge1, Edge edge2, LinkedList<Edge> edges) {
-        float e1a_x = vertices.items[edge1.index1 * 2];
-        float e1a_y = vertices.items[edge1.index1 * 2 + 1];
-        float e1b_x = vertices.items[edge1.index2 * 2];
-        float e1b_y = vertices.items[edge1.index2 * 2 + 1];
-
-        float e2a_x = vertices.items[edge2.index1 * 2];
-        float e2a_y = vertices.items[edge2.index1 * 2 + 1];
-        float e2b_x = vertices.items[edge2.index2 * 2];
-        float e2b_y = vertices.items[edge2.index2 * 2 + 1];
-
-        Vector2 intersection = new Vector2();
-        for (Edge edge : edges) {
+    private boolean doEdgesIntersectOtherEdges(Edge edge1, Edge edge2, SegmentGrid grid) {
+        Edge edge = findIntersectingEdge(edge1, grid);
+        if (edge == null) {
+            edge = findIntersectingEdge(edge2, grid);
+        }
+        if (edge != null) {
+            if (tracing()) logger.debug("\t\tINTERSECTS: edge1 " + edge1.toString() + ", edge2 " + edge2.toString() + ": intersect " + edge.toString());
+            return true;
+        }
+
+        if (tracing()) logger.debug("\t\tNO INTERSECT: edge1 " + edge1.toString() + ", edge2 " + edge2.toString());
+        return false;
+    }
+
+    /**
+     * Find an edge in the grid that crosses the specified edge somewhere other than at its own endpoints
+     * @param candidate the edge to check
+     * @param grid the indexed edges to check against
+     * @return the first intersecting edge found, or null if there are none
+     */
+    private Edge findIntersectingEdge(Edge candidate, SegmentGrid grid) {
+        float ca_x = vertices.items[candidate.index1 * 2];
+        float ca_y = vertices.items[candidate.index1 * 2 + 1];
+        float cb_x = vertices.items[candidate.index2 * 2];
+        float cb_y = vertices.items[candidate.index2 * 2 + 1];
+
+        grid.query(candidate, nearbyEdges);
+        for (int i = 0; i < nearbyEdges.size; ++i) {
+            final Edge edge = nearbyEdges.get(i);
             float ea_x = vertices.items[edge.index1 * 2];
             float ea_y = vertices.items[edge.index1 * 2 + 1];
             float eb_x = vertices.items[edge.index2 * 2];
             float eb_y = vertices.items[edge.index2 * 2 + 1];
 
             // NOTE: ignore intersections at endpoints
-            boolean intersectsEdge1 = Intersector.intersectSegments(ea_x, ea_y, eb_x, eb_y, e1a_x, e1a_y, e1b_x, e1b_y, intersection);
-            if (intersectsEdge1 &&
-               ((intersection.x == ea_x && intersection.y == ea_y)
-             || (intersection.x == eb_x && intersection.y == eb_y))) {
-                intersectsEdge1 = false;
+            if (Intersector.intersectSegments(ea_x, ea_y, eb_x, eb_y, ca_x, ca_y, cb_x, cb_y, intersection)
+             && !((intersection.x == ea_x && intersection.y == ea_y)
+               || (intersection.x == eb_x && intersection.y == eb_y))) {
+                return edge;
             }
+        }
+        return null;
+    }
 
-            boolean intersectsEdge2 = Intersector.intersectSegments(ea_x, ea_y, eb_x, eb_y, e2a_x, e2a_y, e2b_x, e2b_y, intersection);
-            if (intersectsEdge2 &&
-               ((intersection.x == ea_x && intersection.y == ea_y)
-             || (intersection.x == eb_x && intersection.y == eb_y))) {
-                intersectsEdge2 = false;
-            }
+    /**
+     * @return counters from the last generateConcaveHull() call
+     */
+    public Stats getStats() { return stats; }
 
-            if (intersectsEdge1 || intersectsEdge2) {
-                Gdx.app.log("ProcessingEdges", "\t\tINTERSECTS: edge1 " + edge1.toString() + ", edge2 " + edge2.toString() + ": intersect " + edge.toString());
-                return true;
-            }
+    /**
+     * @param level one of Logger.NONE, ERROR, INFO (a summary per hull, the default) or DEBUG (every edge and point)
+     */
+    public void setLogLevel(int level) { logger.setLevel(level); }
+
+    public int getLogLevel() { return logger.getLevel(); }
+
+    private boolean tracing() { return logger.getLevel() >= Logger.DEBUG; }
+
+    /**
+     * The concave hull as a polygon, every hull point once in order around the hull
+     * @param out cleared and filled with indices into the points passed to generateConcaveHull()
+     * @return out
+     */
+    public IntArray getConcaveHullPolygon(IntArray out) {
+        out.clear();
+        if (concaveHullEdges.isEmpty()) return out;
+
+        // Every hull point has exactly two hull neighbors, edges don't all point the same way so link both ends
+        final int numPoints = vertices.size / 2;
+        if (r_neighbors.length < 2 * numPoints) {
+            r_neighbors = new int[2 * numPoints];
+        }
+        for (Edge edge : concaveHullEdges) {
+            r_neighbors[2 * edge.index1] = r_neighbors[2 * edge.index1 + 1] = -1;
+            r_neighbors[2 * edge.index2] = r_neighbors[2 * edge.index2 + 1] = -1;
+        }
+        for (Edge edge : concaveHullEdges) {
+            linkNeighbor(edge.index1, edge.index2);
+            linkNeighbor(edge.index2, edge.index1);
         }
 
-        Gdx.app.log("ProcessingEdges", "\t\tNO INTERSECT: edge1 " + edge1.toString() + ", edge2 " + edge2.toString());
-        return false;
+        final int start = concaveHullEdges.getFirst().index1;
+        int previous = -1;
+        int current = start;
+        do {
+            out.add(current);
+            final int next = (r_neighbors[2 * current] != previous) ? r_neighbors[2 * current] : r_neighbors[2 * current + 1];
+            previous = current;
+            current = next;
+        } while (current != start && current != -1 && out.size < concaveHullEdges.size());
+        return out;
+    }
+
+    private void linkNeighbor(int point, int neighbor) {
+        if      (r_neighbors[2 * point]     == -1) r_neighbors[2 * point]     = neighbor;
+        else if (r_neighbors[2 * point + 1] == -1) r_neighbors[2 * point + 1] = neighbor;
     }
 
     public Rectangle getMinRect() {
@@ -390,6 +1271,79 @@ public class ConcaveHull {
         return bounds;
     }
 
+    // ------------------------------------------------------------------------
+    // Batch Hulls
+    // ------------------------------------------------------------------------
+
+    /**
+     * Concave hulls of a batch of point clouds packed into flat arrays
+     * The hull of cloud i is indices[offsets[i] .. offsets[i+1]) in polygon order, indexing into that cloud's points,
+     * with the matching interleaved coordinates in coords[2 * offsets[i] .. 2 * offsets[i+1])
+     */
+    public static class BatchResult {
+        public final int[] offsets;
+        public final int[] indices;
+        public final float[] coords;
+
+        BatchResult(int[] offsets, int[] indices, float[] coords) {
+            this.offsets = offsets;
+            this.indices = indices;
+            this.coords = coords;
+        }
+
+        public int getNumHulls() { return offsets.length - 1; }
+        public int getNumVertices(int hull) { return offsets[hull + 1] - offsets[hull]; }
+    }
+
+    /**
+     * Generate the concave hulls of many point clouds across the Parallel worker pool, eg. one per city ward
+     * Each worker reuses a single ConcaveHull, with logging off, for its share of the clouds
+     * @param clouds interleaved [x, y, ...] points of each cloud, not modified
+     * @param engine the algorithm that shrinks each convex hull into a concave hull
+     * @return the hulls, clouds with fewer than 3 points are their own hull
+     */
+    public static BatchResult generateConcaveHulls(final FloatArray[] clouds, final Engine engine) {
+        final int[][] polygons = new int[clouds.length][];
+        final int grain = Math.max(1, clouds.length / (8 * Parallel.getNumThreads()));
+        Parallel.forRange(0, clouds.length, grain, new Parallel.RangeTask() {
+            @Override
+            public void run(int begin, int end) {
+                final ConcaveHull hull = new ConcaveHull();
+                hull.setLogLevel(Logger.NONE);
+                final IntArray polygon = new IntArray();
+                for (int i = begin; i < end; ++i) {
+                    final int numPoints = clouds[i].size / 2;
+                    if (numPoints < 3) {
+                        polygons[i] = new int[numPoints];
+                        for (int j = 0; j < numPoints; ++j) {
+                            polygons[i][j] = j;
+                        }
+                        continue;
+                    }
+                    hull.generateConcaveHull(clouds[i], engine);
+                    polygons[i] = hull.getConcaveHullPolygon(polygon).toArray();
+                }
+            }
+        });
+
+        final int[] offsets = new int[clouds.length + 1];
+        for (int i = 0; i < clouds.length; ++i) {
+            offsets[i + 1] = offsets[i] + polygons[i].length;
+        }
+        final int[] indices = new int[offsets[clouds.length]];
+        final float[] coords = new float[2 * offsets[clouds.length]];
+        for (int i = 0; i < clouds.length; ++i) {
+            final float[] points = clouds[i].items;
+            for (int j = 0; j < polygons[i].length; ++j) {
+                final int k = offsets[i] + j;
+                indices[k] = polygons[i][j];
+                coords[2 * k]     = points[2 * polygons[i][j]];
+                coords[2 * k + 1] = points[2 * polygons[i][j] + 1];
+            }
+        }
+        return new BatchResult(offsets, indices, coords);
+    }
+
     // ------------------------------------------------------------------------
     // Render Helpers
     // ------------------------------------------------------------------------
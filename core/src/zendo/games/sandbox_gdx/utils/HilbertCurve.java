@@ -0,0 +1,90 @@
+package zendo.games.sandbox_gdx.utils;
+
+import java.util.Arrays;
+
+/**
+ * Orders 2d points along a Hilbert curve so points close in space end up close in memory
+ *
+ * Points are snapped to a 2^16 x 2^16 grid over their bounding box and sorted by the
+ * distance along the curve through that grid. The curve never jumps, unlike a Morton
+ * (z-order) curve, so consecutive points are always neighbors.
+ */
+public class HilbertCurve {
+
+    private static final int order = 16;
+    private static final int side = 1 << order;
+
+    /**
+     * @param x grid column in [0, 2^16)
+     * @param y grid row in [0, 2^16)
+     * @return the distance along the curve to the cell, as an unsigned 32 bit value
+     */
+    public static int key(int x, int y) {
+        int d = 0;
+        for (int s = side >>> 1; s > 0; s >>>= 1) {
+            final int rx = (x & s) != 0 ? 1 : 0;
+            final int ry = (y & s) != 0 ? 1 : 0;
+            d += s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant so the curve inside it lines up with its neighbors
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                final int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Sort a range of interleaved [x, y, ...] points in place along the curve
+     * @param points interleaved [x, y, ...] point coordinates
+     * @param begin the first point to sort
+     * @param end one past the last point to sort
+     * @param out_order optional, out_order[i] is set to the point index that was at i before the sort, for i in [begin, end)
+     */
+    public static void sort(float[] points, int begin, int end, int[] out_order) {
+        final int count = end - begin;
+        if (count <= 1) {
+            if (out_order != null && count == 1) out_order[begin] = begin;
+            return;
+        }
+
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int i = begin; i < end; ++i) {
+            minX = Math.min(minX, points[2 * i]);
+            minY = Math.min(minY, points[2 * i + 1]);
+            maxX = Math.max(maxX, points[2 * i]);
+            maxY = Math.max(maxY, points[2 * i + 1]);
+        }
+        final float scaleX = (side - 1) / Math.max(maxX - minX, Float.MIN_NORMAL);
+        final float scaleY = (side - 1) / Math.max(maxY - minY, Float.MIN_NORMAL);
+
+        // the key goes in the high bits and the index in the low bits, so a primitive sort does the job
+        final long[] keyed = new long[count];
+        for (int i = begin; i < end; ++i) {
+            final int x = (int) ((points[2 * i]     - minX) * scaleX);
+            final int y = (int) ((points[2 * i + 1] - minY) * scaleY);
+            keyed[i - begin] = ((key(x, y) & 0xFFFFFFFFL) << 32) | i;
+        }
+        Arrays.sort(keyed);
+
+        final float[] sorted = new float[2 * count];
+        for (int j = 0; j < count; ++j) {
+            final int i = (int) keyed[j];
+            sorted[2 * j]     = points[2 * i];
+            sorted[2 * j + 1] = points[2 * i + 1];
+            if (out_order != null) {
+                out_order[begin + j] = i;
+            }
+        }
+        System.arraycopy(sorted, 0, points, 2 * begin, 2 * count);
+    }
+
+}
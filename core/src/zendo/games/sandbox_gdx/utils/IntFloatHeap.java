@@ -0,0 +1,125 @@
+package zendo.games.sandbox_gdx.utils;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of int ids keyed by float priorities, without boxing
+ *
+ * Ids are indices into an array the caller owns (eg. region ids), so each id is
+ * in the heap at most once and its key can be lowered in place, which keeps the
+ * heap small for Dijkstra style searches where the same node is improved many times.
+ *
+ * Ids must be in [0, capacity), see ensureCapacity().
+ */
+public class IntFloatHeap {
+
+    private int[] heap;     // ids in heap order
+    private float[] keys;   // keys in heap order, kept beside the ids so sifting doesn't chase pointers
+    private int[] position; // heap slot of each id, -1 if the id isn't in the heap
+    private int size;
+
+    public IntFloatHeap(int capacity) {
+        heap = new int[capacity];
+        keys = new float[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+        size = 0;
+    }
+
+    /**
+     * Make room for ids up to capacity - 1, the heap must be empty
+     * @param capacity the number of distinct ids
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= position.length) return;
+        heap = new int[capacity];
+        keys = new float[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    /**
+     * @param id the id
+     * @return true if the id is currently in the heap
+     */
+    public boolean contains(int id) { return position[id] != -1; }
+
+    /**
+     * Remove everything from the heap
+     */
+    public void clear() {
+        for (int i = 0; i < size; ++i) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Add an id, or lower its key if it is already in the heap
+     * @param id the id
+     * @param key the priority, lower keys are popped first
+     * @return true if the id was added or its key was lowered, false if it was already in with a lower or equal key
+     */
+    public boolean push(int id, float key) {
+        int i = position[id];
+        if (i == -1) {
+            i = size++;
+        } else if (key >= keys[i]) {
+            return false;
+        }
+        siftUp(i, id, key);
+        return true;
+    }
+
+    /**
+     * @return the key of the id that pop() will return next, the heap must not be empty
+     */
+    public float peekKey() { return keys[0]; }
+
+    /**
+     * Remove the id with the lowest key, the heap must not be empty
+     * @return the id
+     */
+    public int pop() {
+        final int top = heap[0];
+        position[top] = -1;
+        if (--size > 0) {
+            siftDown(0, heap[size], keys[size]);
+        }
+        return top;
+    }
+
+    private void siftUp(int i, int id, float key) {
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) break;
+            place(i, heap[parent], keys[parent]);
+            i = parent;
+        }
+        place(i, id, key);
+    }
+
+    private void siftDown(int i, int id, float key) {
+        final int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (key <= keys[child]) break;
+            place(i, heap[child], keys[child]);
+            i = child;
+        }
+        place(i, id, key);
+    }
+
+    private void place(int i, int id, float key) {
+        heap[i] = id;
+        keys[i] = key;
+        position[id] = i;
+    }
+
+}
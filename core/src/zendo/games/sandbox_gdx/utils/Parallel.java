@@ -0,0 +1,114 @@
+package zendo.games.sandbox_gdx.utils;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Shared worker pool for splitting index ranges across cores
+ *
+ * Work is handed out as [begin, end) ranges so the callers can keep their
+ * inner loops over primitive arrays. Calls block until every range is done,
+ * which also guarantees the caller sees everything the workers wrote.
+ *
+ * NOTE: a plain fixed thread pool is used rather than a ForkJoinPool since
+ * the core project still targets Java 6 / old Android API levels
+ */
+public class Parallel {
+
+    public interface RangeTask {
+        void run(int begin, int end);
+    }
+
+    private static int numThreads = Runtime.getRuntime().availableProcessors();
+    private static ExecutorService executor;
+
+    private static class WorkerThread extends Thread {
+        WorkerThread(Runnable runnable, int id) {
+            super(runnable, "Parallel-" + id);
+            setDaemon(true);
+        }
+    }
+
+    public static synchronized int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Change the number of worker threads, the existing pool (if any) is shut down
+     * @param threads the number of threads to use, values < 1 run everything on the calling thread
+     */
+    public static synchronized void setNumThreads(int threads) {
+        numThreads = Math.max(1, threads);
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+                private int nextId = 0;
+                @Override
+                public synchronized Thread newThread(Runnable runnable) {
+                    return new WorkerThread(runnable, nextId++);
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Run task over [begin, end) split into ranges of at most 'grain' indices
+     * Runs inline when there is only one range, one thread, or when called from a worker thread
+     * @param begin the first index (inclusive)
+     * @param end the last index (exclusive)
+     * @param grain the maximum number of indices handed to a single task invocation
+     * @param task the task to run for each range
+     */
+    public static void forRange(int begin, int end, int grain, final RangeTask task) {
+        final int count = end - begin;
+        if (count <= 0) return;
+
+        grain = Math.max(1, grain);
+        final int numRanges = (count + grain - 1) / grain;
+        if (numRanges == 1 || getNumThreads() == 1 || Thread.currentThread() instanceof WorkerThread) {
+            task.run(begin, end);
+            return;
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(numRanges);
+        for (int rangeBegin = begin; rangeBegin < end; rangeBegin += grain) {
+            final int b = rangeBegin;
+            final int e = Math.min(rangeBegin + grain, end);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    task.run(b, e);
+                    return null;
+                }
+            });
+        }
+
+        try {
+            List<Future<Void>> futures = getExecutor().invokeAll(tasks);
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GdxRuntimeException("Interrupted while waiting for parallel tasks", e);
+        } catch (ExecutionException e) {
+            throw new GdxRuntimeException("Parallel task failed", e.getCause());
+        }
+    }
+
+}
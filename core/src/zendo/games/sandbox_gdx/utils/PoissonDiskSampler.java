@@ -0,0 +1,190 @@
+package zendo.games.sandbox_gdx.utils;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Bridson's Poisson-disk sampling over a background grid
+ *
+ * Grid cells are radius / sqrt(2) wide so each cell holds at most one sample,
+ * and a candidate only has to be checked against the 5x5 block of cells around it.
+ * Cells store sample coordinates directly (NaN when empty) so several fill() calls
+ * writing to separate output buffers can share one grid.
+ *
+ * Concurrent fill() calls are safe as long as their cell ranges are at least one
+ * full range apart, ie. no call reads cells that another call is writing.
+ */
+public class PoissonDiskSampler {
+
+    private float radius;
+    private int numCreateAttempts;
+
+    private float originX;
+    private float originY;
+    private float cellSize;
+    private int gridWidth;
+    private int gridHeight;
+    private float[] cells;
+
+    /**
+     * Reset the background grid to cover bounds, reusing the existing cell storage when possible
+     * @param bounds the area covered by the grid
+     * @param radius the minimum distance between samples
+     * @param numCreateAttempts the number of candidates tried around each active sample
+     */
+    public void reset(Rectangle bounds, float radius, int numCreateAttempts) {
+        this.radius = radius;
+        this.numCreateAttempts = numCreateAttempts;
+        this.originX = bounds.x;
+        this.originY = bounds.y;
+        this.cellSize = radius / (float) Math.sqrt(2);
+        this.gridWidth  = (int) (bounds.width  / cellSize) + 1;
+        this.gridHeight = (int) (bounds.height / cellSize) + 1;
+        if (cells == null || cells.length != gridWidth * gridHeight * 2) {
+            cells = new float[gridWidth * gridHeight * 2];
+        }
+        Arrays.fill(cells, Float.NaN);
+    }
+
+    public float getCellSize() { return cellSize; }
+    public int getGridWidth()  { return gridWidth; }
+    public int getGridHeight() { return gridHeight; }
+
+    public int cellX(float x) { return Math.min(Math.max((int) ((x - originX) / cellSize), 0), gridWidth  - 1); }
+    public int cellY(float y) { return Math.min(Math.max((int) ((y - originY) / cellSize), 0), gridHeight - 1); }
+
+    /**
+     * Check whether a candidate sample is further than radius from every sample in the grid
+     * @param x x value of the candidate sample
+     * @param y y value of the candidate sample
+     * @return true if the candidate doesn't conflict with any existing sample, false otherwise
+     */
+    public boolean isFree(float x, float y) {
+        final int cx = cellX(x);
+        final int cy = cellY(y);
+        final int minX = Math.max(cx - 2, 0);
+        final int maxX = Math.min(cx + 2, gridWidth - 1);
+        final int minY = Math.max(cy - 2, 0);
+        final int maxY = Math.min(cy + 2, gridHeight - 1);
+        final float radius2 = radius * radius;
+        for (int gy = minY; gy <= maxY; ++gy) {
+            for (int gx = minX; gx <= maxX; ++gx) {
+                int cell = (gy * gridWidth + gx) * 2;
+                float sx = cells[cell];
+                if (Float.isNaN(sx)) continue;
+                float dx = sx - x;
+                float dy = cells[cell + 1] - y;
+                if (dx * dx + dy * dy <= radius2) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record a sample in the grid without any distance checks
+     * @param x x value of the sample
+     * @param y y value of the sample
+     */
+    public void put(float x, float y) {
+        int cell = (cellY(y) * gridWidth + cellX(x)) * 2;
+        cells[cell]     = x;
+        cells[cell + 1] = y;
+    }
+
+    /**
+     * Run Bridson's algorithm from a single random seed point, restricted to the
+     * intersection of the rectangle [minX, maxX) x [minY, maxY) and the cell range
+     * [minCellX, maxCellX) x [minCellY, maxCellY)
+     * @param random the source of randomness for this fill
+     * @param maxSamples stop once out holds this many samples
+     * @param out interleaved [x, y, ...] samples are appended here
+     * @param activeList scratch storage for the active list, cleared before use
+     * @return the number of samples appended to out
+     */
+    public int fill(Random random,
+                    float minX, float minY, float maxX, float maxY,
+                    int minCellX, int minCellY, int maxCellX, int maxCellY,
+                    int maxSamples, FloatArray out, IntArray activeList) {
+        final int startSize = out.size;
+        activeList.clear();
+
+        // Throw darts into the part of the rectangle covered by the cell range until one lands somewhere free
+        final float dartMinX = Math.max(minX, originX + minCellX * cellSize);
+        final float dartMinY = Math.max(minY, originY + minCellY * cellSize);
+        final float dartMaxX = Math.min(maxX, originX + maxCellX * cellSize);
+        final float dartMaxY = Math.min(maxY, originY + maxCellY * cellSize);
+        if (dartMinX >= dartMaxX || dartMinY >= dartMaxY || out.size / 2 >= maxSamples) {
+            return 0;
+        }
+        for (int i = 0; i < numCreateAttempts; ++i) {
+            float x = dartMinX + random.nextFloat() * (dartMaxX - dartMinX);
+            float y = dartMinY + random.nextFloat() * (dartMaxY - dartMinY);
+            if (accept(x, y, minX, minY, maxX, maxY, minCellX, minCellY, maxCellX, maxCellY)) {
+                add(x, y, out, activeList);
+                break;
+            }
+        }
+
+        while (activeList.size > 0 && out.size / 2 < maxSamples) {
+            int lastActiveIndex = activeList.size - 1;
+            activeList.swap(lastActiveIndex, random.nextInt(lastActiveIndex + 1));
+            int currentSample = activeList.get(lastActiveIndex);
+            float currentX = out.items[currentSample * 2];
+            float currentY = out.items[currentSample * 2 + 1];
+
+            boolean didCreateSample = false;
+            for (int i = 0; i < numCreateAttempts && out.size / 2 < maxSamples; ++i) {
+                float theta = random.nextFloat() * 360f;
+                float dist = radius + random.nextFloat() * radius;
+                float x = currentX + dist * MathUtils.cosDeg(theta);
+                float y = currentY + dist * MathUtils.sinDeg(theta);
+                if (accept(x, y, minX, minY, maxX, maxY, minCellX, minCellY, maxCellX, maxCellY)) {
+                    add(x, y, out, activeList);
+                    didCreateSample = true;
+                }
+            }
+
+            if (!didCreateSample) {
+                activeList.removeIndex(lastActiveIndex);
+            }
+        }
+
+        return (out.size - startSize) / 2;
+    }
+
+    /**
+     * Derive a seed for the cell / tile / chunk at (x, y) from a base seed
+     * @param seed the base seed
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @return the seed for the cell
+     */
+    public static long seedFor(long seed, int x, int y) {
+        return seed ^ (x * 0x9E3779B97F4A7C15L) ^ (y * 0xC2B2AE3D27D4EB4FL);
+    }
+
+    private boolean accept(float x, float y,
+                           float minX, float minY, float maxX, float maxY,
+                           int minCellX, int minCellY, int maxCellX, int maxCellY) {
+        if (x < minX || x >= maxX || y < minY || y >= maxY) return false;
+        int cx = cellX(x);
+        int cy = cellY(y);
+        if (cx < minCellX || cx >= maxCellX || cy < minCellY || cy >= maxCellY) return false;
+        return isFree(x, y);
+    }
+
+    private void add(float x, float y, FloatArray out, IntArray activeList) {
+        put(x, y);
+        activeList.add(out.size / 2);
+        out.add(x);
+        out.add(y);
+    }
+
+}
@@ -0,0 +1,122 @@
+package zendo.games.sandbox_gdx.utils;
+
+import com.badlogic.gdx.math.Rectangle;
+
+/**
+ * A compact set of 2d points, stored as 16 bit fixed point offsets within a bounding rectangle
+ *
+ * Each point takes 4 bytes instead of the 8 of a pair of floats. Coordinates are snapped
+ * to a 65536 x 65536 grid over the bounds, so the error is at most half a grid step,
+ * eg. 0.08 units for a 10000 unit wide chunk, and decoding is a multiply-add.
+ */
+public class QuantizedPoints {
+
+    private static final int max_value = 0xFFFF;
+
+    private final short[] values;   // interleaved [x0, y0, x1, y1, ...] as unsigned 16 bit grid coordinates
+    private final int size;
+    private final float originX;
+    private final float originY;
+    private final float stepX;
+    private final float stepY;
+
+    /**
+     * Quantize points within their own bounding box
+     * @param points interleaved [x, y, ...] point coordinates
+     * @param numPoints the number of points to use from the points array
+     */
+    public QuantizedPoints(float[] points, int numPoints) {
+        this(points, numPoints, boundingBox(points, numPoints));
+    }
+
+    /**
+     * Quantize points relative to a chunk's bounds, points outside bounds are clamped to its edges
+     * @param points interleaved [x, y, ...] point coordinates
+     * @param numPoints the number of points to use from the points array
+     * @param bounds the area the grid covers
+     */
+    public QuantizedPoints(float[] points, int numPoints, Rectangle bounds) {
+        this.size = numPoints;
+        this.values = new short[2 * numPoints];
+        this.originX = bounds.x;
+        this.originY = bounds.y;
+        this.stepX = Math.max(bounds.width,  Float.MIN_NORMAL) / max_value;
+        this.stepY = Math.max(bounds.height, Float.MIN_NORMAL) / max_value;
+        for (int i = 0; i < numPoints; ++i) {
+            values[2 * i]     = encode(points[2 * i],     originX, stepX);
+            values[2 * i + 1] = encode(points[2 * i + 1], originY, stepY);
+        }
+    }
+
+    /**
+     * Wrap already quantized values, eg. read back from a file
+     * @param values interleaved [x, y, ...] unsigned 16 bit grid coordinates, not copied
+     * @param size the number of points
+     * @param originX x value of grid coordinate 0
+     * @param originY y value of grid coordinate 0
+     * @param stepX distance between grid coordinates along x
+     * @param stepY distance between grid coordinates along y
+     */
+    public QuantizedPoints(short[] values, int size, float originX, float originY, float stepX, float stepY) {
+        this.values = values;
+        this.size = size;
+        this.originX = originX;
+        this.originY = originY;
+        this.stepX = stepX;
+        this.stepY = stepY;
+    }
+
+    public int size() { return size; }
+
+    public float x(int i) { return originX + (values[2 * i]     & max_value) * stepX; }
+    public float y(int i) { return originY + (values[2 * i + 1] & max_value) * stepY; }
+
+    public float getOriginX() { return originX; }
+    public float getOriginY() { return originY; }
+    public float getStepX() { return stepX; }
+    public float getStepY() { return stepY; }
+
+    /**
+     * @return the raw interleaved grid coordinates, read them as unsigned with (value & 0xFFFF)
+     */
+    public short[] getValues() { return values; }
+
+    /**
+     * Decode every point
+     * @param out optional output array, reused if it can hold 2 * size() floats
+     * @return interleaved [x, y, ...] point coordinates
+     */
+    public float[] toFloats(float[] out) {
+        if (out == null || out.length < 2 * size) {
+            out = new float[2 * size];
+        }
+        for (int i = 0; i < size; ++i) {
+            out[2 * i]     = x(i);
+            out[2 * i + 1] = y(i);
+        }
+        return out;
+    }
+
+    private static short encode(float value, float origin, float step) {
+        final int q = Math.round((value - origin) / step);
+        return (short) Math.min(Math.max(q, 0), max_value);
+    }
+
+    private static Rectangle boundingBox(float[] points, int numPoints) {
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < numPoints; ++i) {
+            minX = Math.min(minX, points[2 * i]);
+            minY = Math.min(minY, points[2 * i + 1]);
+            maxX = Math.max(maxX, points[2 * i]);
+            maxY = Math.max(maxY, points[2 * i + 1]);
+        }
+        if (numPoints == 0) {
+            return new Rectangle();
+        }
+        return new Rectangle(minX, minY, maxX - minX, maxY - minY);
+    }
+
+}
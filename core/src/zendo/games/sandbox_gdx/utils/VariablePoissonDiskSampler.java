@@ -0,0 +1,292 @@
+package zendo.games.sandbox_gdx.utils;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Bridson's Poisson-disk sampling where the minimum distance varies with position
+ *
+ * Two samples p, q conflict when they are closer than min(radius(p), radius(q)), so dense
+ * areas stay dense right up to their edge and sparse areas never push into them.
+ *
+ * Samples are bucketed into levels by radius, level l holding radii in
+ * [minRadius * 2^l, minRadius * 2^(l+1)), and each level has its own spatial hash with
+ * cells small enough to hold at most one of its samples. A candidate only ever has to
+ * look at a 7x7 block of cells per level, so neighbor checks stay O(1) however far
+ * apart minRadius and maxRadius are, and the hashes only hold cells that are in use.
+ */
+public class VariablePoissonDiskSampler {
+
+    private final FloatArray radii;
+    private SpatialHash[] levels;
+    private float[] levelCellSizes;
+    private float minRadius;
+    private float maxRadius;
+    private int numCreateAttempts;
+
+    public VariablePoissonDiskSampler() {
+        this.radii = new FloatArray();
+        this.levels = new SpatialHash[0];
+        this.levelCellSizes = new float[0];
+    }
+
+    /**
+     * Clear all samples and set up the levels for radii in [minRadius, maxRadius]
+     * @param minRadius the smallest radius the radius function can return, must be positive
+     * @param maxRadius the largest radius the radius function can return
+     * @param numCreateAttempts the number of candidates tried around each active sample
+     */
+    public void reset(float minRadius, float maxRadius, int numCreateAttempts) {
+        // the levels double from minRadius until they pass maxRadius, which never happens from zero
+        if (!(minRadius > 0f)) {
+            throw new GdxRuntimeException("VariablePoissonDiskSampler minRadius must be positive, was " + minRadius);
+        }
+        this.minRadius = minRadius;
+        this.maxRadius = Math.max(minRadius, maxRadius);
+        this.numCreateAttempts = numCreateAttempts;
+        this.radii.clear();
+
+        int numLevels = 1;
+        while (minRadius * (1 << numLevels) <= this.maxRadius) {
+            ++numLevels;
+        }
+        if (levels.length != numLevels) {
+            levels = new SpatialHash[numLevels];
+            levelCellSizes = new float[numLevels];
+            for (int l = 0; l < numLevels; ++l) {
+                levels[l] = new SpatialHash();
+            }
+        }
+        for (int l = 0; l < numLevels; ++l) {
+            levels[l].clear();
+            levelCellSizes[l] = (minRadius * (1 << l)) / (float) Math.sqrt(2);
+        }
+    }
+
+    private int levelOf(float radius) {
+        int level = 0;
+        while (level + 1 < levels.length && radius >= minRadius * (2 << level)) {
+            ++level;
+        }
+        return level;
+    }
+
+    /**
+     * Check whether a candidate with the given radius conflicts with any existing sample
+     * @param x x value of the candidate sample
+     * @param y y value of the candidate sample
+     * @param radius the radius at the candidate sample
+     * @param points the samples placed so far
+     * @return true if the candidate doesn't conflict with any existing sample, false otherwise
+     */
+    public boolean isFree(float x, float y, float radius, FloatArray points) {
+        // The candidate's own level is the most likely to conflict so check it first
+        final int ownLevel = levelOf(radius);
+        if (!isFree(ownLevel, x, y, radius, points)) return false;
+        for (int l = 0; l < levels.length; ++l) {
+            if (l != ownLevel && !isFree(l, x, y, radius, points)) return false;
+        }
+        return true;
+    }
+
+    private boolean isFree(int level, float x, float y, float radius, FloatArray points) {
+        final SpatialHash hash = levels[level];
+        final float cellSize = levelCellSizes[level];
+        final float levelMaxRadius = minRadius * (2 << level);
+        final float reachRadius = Math.min(radius, levelMaxRadius);
+        if (hash.size == 0
+         || x + reachRadius < hash.minX || x - reachRadius > hash.maxX
+         || y + reachRadius < hash.minY || y - reachRadius > hash.maxY) {
+            return true;
+        }
+
+        final int reach = MathUtils.ceil(reachRadius / cellSize);
+        final int cx = floor(x / cellSize);
+        final int cy = floor(y / cellSize);
+        for (int gy = cy - reach; gy <= cy + reach; ++gy) {
+            for (int gx = cx - reach; gx <= cx + reach; ++gx) {
+                int sample = hash.get(gx, gy);
+                if (sample == -1) continue;
+                float dx = points.items[sample * 2]     - x;
+                float dy = points.items[sample * 2 + 1] - y;
+                float conflictRadius = Math.min(radius, radii.items[sample]);
+                if (dx * dx + dy * dy <= conflictRadius * conflictRadius) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Run variable radius Bridson from a single random seed point inside [minX, maxX) x [minY, maxY)
+     * @param random the source of randomness for this fill
+     * @param radiusFunction the minimum distance at each position, clamped to [minRadius, maxRadius]
+     * @param maxSamples stop once points holds this many samples
+     * @param points interleaved [x, y, ...] samples are appended here, must be the same buffer for every fill since reset
+     * @param activeList scratch storage for the active list, cleared before use
+     * @return the number of samples appended to points
+     */
+    public int fill(Random random, BlueNoiseGenerator.RadiusFunction radiusFunction,
+                    float minX, float minY, float maxX, float maxY,
+                    int maxSamples, FloatArray points, IntArray activeList) {
+        final int startSize = points.size;
+        activeList.clear();
+        if (minX >= maxX || minY >= maxY || points.size / 2 >= maxSamples) {
+            return 0;
+        }
+
+        for (int i = 0; i < numCreateAttempts && activeList.size == 0; ++i) {
+            float x = minX + random.nextFloat() * (maxX - minX);
+            float y = minY + random.nextFloat() * (maxY - minY);
+            float radius = radiusAt(radiusFunction, x, y);
+            if (isFree(x, y, radius, points)) {
+                add(x, y, radius, points, activeList);
+            }
+        }
+
+        while (activeList.size > 0 && points.size / 2 < maxSamples) {
+            int lastActiveIndex = activeList.size - 1;
+            activeList.swap(lastActiveIndex, random.nextInt(lastActiveIndex + 1));
+            int currentSample = activeList.get(lastActiveIndex);
+            float currentX = points.items[currentSample * 2];
+            float currentY = points.items[currentSample * 2 + 1];
+            float currentRadius = radii.items[currentSample];
+
+            boolean didCreateSample = false;
+            for (int i = 0; i < numCreateAttempts && points.size / 2 < maxSamples; ++i) {
+                float theta = random.nextFloat() * 360f;
+                float dist = currentRadius + random.nextFloat() * currentRadius;
+                float x = currentX + dist * MathUtils.cosDeg(theta);
+                float y = currentY + dist * MathUtils.sinDeg(theta);
+                if (x < minX || x >= maxX || y < minY || y >= maxY) continue;
+
+                float radius = radiusAt(radiusFunction, x, y);
+                if (isFree(x, y, radius, points)) {
+                    add(x, y, radius, points, activeList);
+                    didCreateSample = true;
+                }
+            }
+
+            if (!didCreateSample) {
+                activeList.removeIndex(lastActiveIndex);
+            }
+        }
+
+        return (points.size - startSize) / 2;
+    }
+
+    private static int floor(float value) {
+        int i = (int) value;
+        return (value < i) ? i - 1 : i;
+    }
+
+    private float radiusAt(BlueNoiseGenerator.RadiusFunction radiusFunction, float x, float y) {
+        return MathUtils.clamp(radiusFunction.radius(x, y), minRadius, maxRadius);
+    }
+
+    private void add(float x, float y, float radius, FloatArray points, IntArray activeList) {
+        final int sample = points.size / 2;
+        final int level = levelOf(radius);
+        final float cellSize = levelCellSizes[level];
+        levels[level].put(floor(x / cellSize), floor(y / cellSize), sample, x, y);
+        radii.add(radius);
+        activeList.add(sample);
+        points.add(x);
+        points.add(y);
+    }
+
+    /**
+     * Open addressing hash from packed (cellX, cellY) keys to sample indices
+     */
+    private static class SpatialHash {
+        private static final long empty_key = Long.MIN_VALUE;
+
+        long[] keys;
+        int[] values;
+        int size;
+        int mask;
+
+        // Bounding box of the samples in this hash, lets far away queries skip the level entirely
+        float minX, minY, maxX, maxY;
+
+        SpatialHash() {
+            keys = new long[16];
+            values = new int[16];
+            mask = 15;
+            Arrays.fill(keys, empty_key);
+            clear();
+        }
+
+        void clear() {
+            if (size != 0) {
+                Arrays.fill(keys, empty_key);
+                size = 0;
+            }
+            minX = minY = Float.POSITIVE_INFINITY;
+            maxX = maxY = Float.NEGATIVE_INFINITY;
+        }
+
+        private static long key(int cx, int cy) {
+            return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+        }
+
+        private static int hash(long key) {
+            key *= 0x9E3779B97F4A7C15L;
+            return (int) (key ^ (key >>> 32));
+        }
+
+        int get(int cx, int cy) {
+            final long key = key(cx, cy);
+            int index = hash(key) & mask;
+            while (true) {
+                long k = keys[index];
+                if (k == key) return values[index];
+                if (k == empty_key) return -1;
+                index = (index + 1) & mask;
+            }
+        }
+
+        void put(int cx, int cy, int value, float x, float y) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            final long key = key(cx, cy);
+            int index = hash(key) & mask;
+            while (keys[index] != empty_key && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            if (keys[index] == empty_key) ++size;
+            keys[index] = key;
+            values[index] = value;
+        }
+
+        private void resize(int capacity) {
+            final long[] oldKeys = keys;
+            final int[] oldValues = values;
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(keys, empty_key);
+            for (int i = 0; i < oldKeys.length; ++i) {
+                if (oldKeys[i] == empty_key) continue;
+                int index = hash(oldKeys[i]) & mask;
+                while (keys[index] != empty_key) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+}
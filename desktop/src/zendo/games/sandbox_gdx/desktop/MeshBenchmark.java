@@ -0,0 +1,124 @@
+package zendo.games.sandbox_gdx.desktop;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.FloatArray;
+import zendo.games.sandbox_gdx.dual_mesh.DistanceField;
+import zendo.games.sandbox_gdx.dual_mesh.MeshGenerator;
+import zendo.games.sandbox_gdx.dual_mesh.PointLocator;
+import zendo.games.sandbox_gdx.dual_mesh.TriangleMesh;
+import zendo.games.sandbox_gdx.dual_mesh.VoronoiCells;
+import zendo.games.sandbox_gdx.utils.BlueNoiseGenerator;
+
+import java.util.Random;
+
+/**
+ * Times mesh traversals over a large blue noise map, with the samples in the order the
+ * BlueNoiseGenerator produced them and then with MeshGenerator's Hilbert curve ordering
+ *
+ * Usage: MeshBenchmark [numSamples], or ./gradlew desktop:benchmark
+ */
+public class MeshBenchmark {
+
+    private static final int default_num_samples = 500000;
+    private static final int num_runs = 5;
+    private static final int num_queries = 200000;
+    private static final float sample_radius = 10f;
+    private static final float boundary_spacing = 20f;
+
+    private interface Task {
+        void run();
+    }
+
+    public static void main(String[] args) {
+        final int numSamples = (args.length > 0) ? Integer.parseInt(args[0]) : default_num_samples;
+
+        // Bridson sampling packs roughly one sample per 1.5 r^2, leave enough room to reach numSamples
+        final float size = (float) Math.sqrt(2f * numSamples) * sample_radius;
+        final Rectangle bounds = new Rectangle(0, 0, size, size);
+
+        long start = System.nanoTime();
+        final BlueNoiseGenerator noise = new BlueNoiseGenerator(sample_radius, 30, bounds, 0, numSamples);
+        final FloatArray samples = noise.getPoints();
+        System.out.printf("%d samples generated in %.1f ms%n", samples.size / 2, (System.nanoTime() - start) / 1e6);
+
+        final float[] queries = new float[2 * num_queries];
+        final Random random = new Random(1);
+        for (int i = 0; i < queries.length; ++i) {
+            queries[i] = random.nextFloat() * size;
+        }
+
+        benchmark("generator order", new MeshGenerator(false), bounds, samples, queries);
+        benchmark("hilbert order", new MeshGenerator(true), bounds, samples, queries);
+    }
+
+    private static void benchmark(String name, MeshGenerator generator, Rectangle bounds, FloatArray samples, final float[] queries) {
+        System.out.println();
+        System.out.println(name);
+
+        long start = System.nanoTime();
+        final TriangleMesh mesh = generator.createMesh(bounds, boundary_spacing, samples);
+        System.out.printf("  %-24s %8.1f ms%n", "createMesh", (System.nanoTime() - start) / 1e6);
+
+        final int[] seeds_r = new int[mesh.numBoundaryRegions];
+        for (int r = 0; r < seeds_r.length; ++r) {
+            seeds_r[r] = r;
+        }
+        final int[] seeds_t = new int[] { 0 };
+        final DistanceField field = new DistanceField(mesh);
+        final float[] r_distance = new float[mesh.numRegions];
+        final float[] t_distance = new float[mesh.numTriangles];
+        final PointLocator locator = new PointLocator(mesh);
+        final int[] located = new int[queries.length / 2];
+
+        time("voronoi cells", new Task() {
+            @Override
+            public void run() {
+                new VoronoiCells(mesh, VoronoiCells.Mode.CIRCUMCENTER);
+            }
+        });
+        time("region bfs", new Task() {
+            @Override
+            public void run() {
+                field.r_bfs(seeds_r, seeds_r.length, null, r_distance);
+            }
+        });
+        time("region dijkstra", new Task() {
+            @Override
+            public void run() {
+                field.r_dijkstra(seeds_r, seeds_r.length, null, r_distance);
+            }
+        });
+        time("triangle bfs", new Task() {
+            @Override
+            public void run() {
+                field.t_bfs(seeds_t, seeds_t.length, null, t_distance);
+            }
+        });
+        time("triangle dijkstra", new Task() {
+            @Override
+            public void run() {
+                field.t_dijkstra(seeds_t, seeds_t.length, null, t_distance);
+            }
+        });
+        time("region locate", new Task() {
+            @Override
+            public void run() {
+                locator.r_locate(queries, located.length, located);
+            }
+        });
+    }
+
+    /**
+     * Run a task a few times and print the fastest run, the first run also warms up the JIT
+     */
+    private static void time(String name, Task task) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < num_runs; ++i) {
+            final long start = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("  %-24s %8.1f ms%n", name, best / 1e6);
+    }
+
+}